@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import au.com.rayh.report.StreamingTestSuite;
+import au.com.rayh.report.TestCase;
+import au.com.rayh.report.TestFailure;
+import au.com.rayh.report.TestSuite;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building and writing the JUnit report of a large suite, one test case in ten failing,
+ * with JAXB and with a {@link StreamingTestSuite}. Run with {@code -prof gc} to compare what each
+ * allocates.
+ * <p>
+ * {@link #marshalWithNewContext} creates a {@link JAXBContext} for the suite, as each report used to,
+ * to compare with the shared one {@link #marshal} uses. The difference shows most on small suites.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TestReportBenchmark {
+    @Param({"5", "100", "10000", "100000"})
+    public int testCases;
+
+    private Marshaller marshaller;
+    private final XCodeBuildOutputParserBenchmark.NullOutputStream out = new XCodeBuildOutputParserBenchmark.NullOutputStream();
+
+    @Setup
+    public void setUp() throws JAXBException {
+        marshaller = XCodeBuildOutputParser.getJAXBContext().createMarshaller();
+    }
+
+    @Benchmark
+    public void marshal() throws IOException, JAXBException {
+        TestSuite suite = new TestSuite("localhost", "GeneratedTestCase", new Date());
+        addTestCases(suite);
+        marshaller.marshal(suite, out);
+    }
+
+    @Benchmark
+    public void marshalWithNewContext() throws IOException, JAXBException {
+        TestSuite suite = new TestSuite("localhost", "GeneratedTestCase", new Date());
+        addTestCases(suite);
+        JAXBContext.newInstance(TestSuite.class).createMarshaller().marshal(suite, out);
+    }
+
+    @Benchmark
+    public void stream() throws IOException {
+        try (StreamingTestSuite suite = new StreamingTestSuite("localhost", "GeneratedTestCase", new Date())) {
+            addTestCases(suite);
+            suite.writeReport(out);
+        }
+    }
+
+    private void addTestCases(TestSuite suite) throws IOException {
+        for (int i = 0; i < testCases; i++) {
+            TestCase testCase = new TestCase("GeneratedTestCase", "test" + i);
+            testCase.setTime(0.001f);
+            suite.addTest();
+            if (i % 10 == 0) {
+                testCase.getFailures().add(new TestFailure("XCTAssertEqual failed: (\"1\") is not equal to (\"2\")", "GeneratedTestCase.m:" + i));
+                suite.addFailure();
+            }
+            suite.addTestCase(testCase);
+        }
+        suite.setEndTime(new Date());
+    }
+}
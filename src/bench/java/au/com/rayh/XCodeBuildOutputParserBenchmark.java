@@ -0,0 +1,166 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import au.com.rayh.report.TestSuite;
+import hudson.util.IOUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how fast {@link XCodeBuildOutputParser} consumes recorded xcodebuild output: a build
+ * without tests, unit tests, UI tests, tests with failures and the mix {@link XCodeBuildLogGenerator}
+ * writes. Each log is repeated, or cut, to {@value #LINES} lines and an operation is a line, so the
+ * score is in lines/s and, with {@code -prof gc}, {@code gc.alloc.rate.norm} is the bytes allocated
+ * per line. The {@code megabytes} counter is in MB/s.
+ * <p>
+ * {@link #parse} writes the log in 8 KB chunks, as the launcher's pipe does, and {@link #parsePerByte}
+ * one {@code write(int)} at a time, to compare the bulk path with the single byte one.
+ * <p>
+ * Reports are not written, see {@link TestReportBenchmark} for that. The console is a
+ * {@link PrintStream}, like the build logger.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XCodeBuildOutputParserBenchmark {
+    static final int LINES = 100000;
+    static final String GENERATED = "generated";
+    private static final int CHUNK_SIZE = 8192;
+
+    @Param({"XCodeBuild_output_build_1.txt", "XCTest_output_passing_1.txt", "XCUITest_output_failing_1.txt", "XCTest_output_failing_1.txt", GENERATED})
+    public String log;
+
+    private byte[] bytes;
+    private PrintStream console;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public double megabytes;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        if (GENERATED.equals(log)) {
+            ByteArrayOutputStream generated = new ByteArrayOutputStream();
+            new XCodeBuildLogGenerator(1).generate(generated, 16 * 1024 * 1024);
+            bytes = repeat(generated.toByteArray(), LINES);
+        } else {
+            bytes = repeat(IOUtils.toByteArray(getClass().getResourceAsStream("/" + log)), LINES);
+        }
+        console = new PrintStream(new NullOutputStream());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public int parse(Counters counters) throws IOException, InterruptedException {
+        XCodeBuildOutputParser parser = new ParseOnlyOutputParser(console);
+        OutputStream out = parser.getOutputStream();
+        for (int off = 0; off < bytes.length; off += CHUNK_SIZE) {
+            out.write(bytes, off, Math.min(CHUNK_SIZE, bytes.length - off));
+        }
+        parser.awaitTestReports();
+        counters.megabytes += bytes.length / (1024.0 * 1024.0);
+        return parser.getExitCode();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public int parsePerByte(Counters counters) throws IOException, InterruptedException {
+        XCodeBuildOutputParser parser = new ParseOnlyOutputParser(console);
+        OutputStream out = parser.getOutputStream();
+        for (byte b : bytes) {
+            out.write(b);
+        }
+        parser.awaitTestReports();
+        counters.megabytes += bytes.length / (1024.0 * 1024.0);
+        return parser.getExitCode();
+    }
+
+    /**
+     * Repeats the log, whole, until it has at least the given number of lines, then cuts it there.
+     */
+    static byte[] repeat(byte[] log, int lines) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int count = 0;
+        while (count < lines) {
+            for (int i = 0; i < log.length && count < lines; i++) {
+                out.write(log[i]);
+                if (log[i] == '\n') {
+                    count++;
+                }
+            }
+            if (log.length > 0 && log[log.length - 1] != '\n') {
+                out.write('\n');
+                count++;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static class ParseOnlyOutputParser extends XCodeBuildOutputParser {
+        ParseOnlyOutputParser(OutputStream console) {
+            super(new File("."), console);
+        }
+
+        @Override
+        protected void writeTestReports(List<TestSuite> suites) {
+        }
+    }
+
+    static class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
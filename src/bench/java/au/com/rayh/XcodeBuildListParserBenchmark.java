@@ -0,0 +1,77 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link XcodeBuildListParser} on the {@code xcodebuild -list} output of projects with
+ * many targets, with a scheme for every ten targets.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XcodeBuildListParserBenchmark {
+    @Param({"10", "500", "10000"})
+    public int targets;
+
+    private String output;
+
+    @Setup
+    public void setUp() {
+        StringBuilder out = new StringBuilder("Information about project \"GeneratedProject\":\n    Targets:\n");
+        for (int i = 0; i < targets; i++) {
+            out.append("        GeneratedTarget").append(i).append('\n');
+            out.append("        GeneratedTarget").append(i).append("Tests\n");
+        }
+        out.append("\n    Build Configurations:\n        Debug\n        Release\n        Beta\n        AppStore\n\n");
+        out.append("    If no build configuration is specified and -scheme is not passed then \"Release\" is used.\n\n");
+        out.append("    Schemes:\n");
+        for (int i = 0; i < targets; i += 10) {
+            out.append("        GeneratedScheme").append(i).append('\n');
+        }
+        output = out.toString();
+    }
+
+    @Benchmark
+    public XcodeBuildListParser parse() {
+        return new XcodeBuildListParser(output);
+    }
+}
@@ -0,0 +1,400 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The binary format of property lists, {@code bplist00}: the objects one after another, each a
+ * marker byte with its type and size followed by its content, then a table of where each object
+ * starts, then a trailer telling the sizes of the references and where the table and the top
+ * object are. Containers refer to their items by their index in the table.
+ */
+class BinaryPlist {
+    private static final byte[] MAGIC = "bplist00".getBytes(StandardCharsets.US_ASCII);
+    private static final int TRAILER_SIZE = 32;
+
+    /**
+     * The seconds between 1970, when {@link Date}s start, and 2001, when those of plists do.
+     */
+    private static final long EPOCH_2001 = 978307200L;
+
+    private final byte[] bytes;
+    private final int offsetSize;
+    private final int refSize;
+    private final int count;
+    private final int offsetTable;
+    /**
+     * The containers being read, to tell a container that holds itself from one nested deep.
+     */
+    private final boolean[] reading;
+
+    private BinaryPlist(byte[] bytes) throws IOException {
+        this.bytes = bytes;
+        if (bytes.length < MAGIC.length + TRAILER_SIZE) {
+            throw new IOException("Truncated binary property list");
+        }
+        int trailer = bytes.length - TRAILER_SIZE;
+        offsetSize = bytes[trailer + 6] & 0xff;
+        refSize = bytes[trailer + 7] & 0xff;
+        long count = readLong(trailer + 8, 8);
+        long offsetTable = readLong(trailer + 24, 8);
+        if (offsetSize < 1 || offsetSize > 8 || refSize < 1 || refSize > 8
+                || count < 1 || offsetTable < MAGIC.length || offsetTable + count * offsetSize > trailer) {
+            throw new IOException("Malformed binary property list trailer");
+        }
+        this.count = (int) count;
+        this.offsetTable = (int) offsetTable;
+        reading = new boolean[this.count];
+    }
+
+    static boolean isBinary(byte[] bytes) {
+        if (bytes.length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (bytes[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static Object read(byte[] bytes) throws IOException {
+        BinaryPlist plist = new BinaryPlist(bytes);
+        long top = plist.readLong(bytes.length - TRAILER_SIZE + 16, 8);
+        return plist.readObject(top, 0);
+    }
+
+    private Object readObject(long ref, int depth) throws IOException {
+        if (ref < 0 || ref >= count) {
+            throw new IOException("Reference " + ref + " out of the binary property list");
+        }
+        if (depth > 512) {
+            throw new IOException("Binary property list nested too deep");
+        }
+        if (reading[(int) ref]) {
+            throw new IOException("Object " + ref + " of the binary property list holds itself");
+        }
+        int offset = (int) readLong(offsetTable + (int) ref * offsetSize, offsetSize);
+        if (offset < MAGIC.length || offset >= offsetTable) {
+            throw new IOException("Object " + ref + " out of the binary property list");
+        }
+        int marker = bytes[offset] & 0xff;
+        int type = marker >> 4;
+        int info = marker & 0x0f;
+        switch (type) {
+            case 0x0:
+                if (info == 0x8) {
+                    return Boolean.FALSE;
+                } else if (info == 0x9) {
+                    return Boolean.TRUE;
+                }
+                throw new IOException("Unsupported object 0x" + Integer.toHexString(marker) + " in binary property list");
+            case 0x1:
+                return readLong(offset + 1, 1 << info);
+            case 0x2:
+                if (info == 2) {
+                    return (double) Float.intBitsToFloat((int) readLong(offset + 1, 4));
+                }
+                return Double.longBitsToDouble(readLong(offset + 1, 8));
+            case 0x3:
+                double seconds = Double.longBitsToDouble(readLong(offset + 1, 8));
+                return new Date((long) ((seconds + EPOCH_2001) * 1000));
+            case 0x4: {
+                int[] start = new int[1];
+                int length = readLength(offset, info, start);
+                check(start[0], length);
+                byte[] data = new byte[length];
+                System.arraycopy(bytes, start[0], data, 0, length);
+                return data;
+            }
+            case 0x5: {
+                int[] start = new int[1];
+                int length = readLength(offset, info, start);
+                check(start[0], length);
+                return new String(bytes, start[0], length, StandardCharsets.US_ASCII);
+            }
+            case 0x6: {
+                int[] start = new int[1];
+                int length = readLength(offset, info, start);
+                check(start[0], length * 2L);
+                return new String(bytes, start[0], length * 2, StandardCharsets.UTF_16BE);
+            }
+            case 0x8:
+                return new Plist.Uid(readLong(offset + 1, info + 1));
+            case 0xa:
+            case 0xc: {
+                int[] start = new int[1];
+                int length = readLength(offset, info, start);
+                check(start[0], (long) length * refSize);
+                List<Object> array = new ArrayList<>(length);
+                reading[(int) ref] = true;
+                for (int i = 0; i < length; i++) {
+                    array.add(readObject(readLong(start[0] + i * refSize, refSize), depth + 1));
+                }
+                reading[(int) ref] = false;
+                return array;
+            }
+            case 0xd: {
+                int[] start = new int[1];
+                int length = readLength(offset, info, start);
+                check(start[0], length * 2L * refSize);
+                Map<String, Object> dict = new LinkedHashMap<>();
+                reading[(int) ref] = true;
+                for (int i = 0; i < length; i++) {
+                    Object key = readObject(readLong(start[0] + i * refSize, refSize), depth + 1);
+                    Object value = readObject(readLong(start[0] + (length + i) * refSize, refSize), depth + 1);
+                    dict.put(String.valueOf(key), value);
+                }
+                reading[(int) ref] = false;
+                return dict;
+            }
+            default:
+                throw new IOException("Unsupported object 0x" + Integer.toHexString(marker) + " in binary property list");
+        }
+    }
+
+    /**
+     * The length of an object, which is in its marker if under 15 or else in the integer after it.
+     * Where its content starts goes in {@code start}.
+     */
+    private int readLength(int offset, int info, int[] start) throws IOException {
+        long length;
+        if (info < 0x0f) {
+            length = info;
+            start[0] = offset + 1;
+        } else {
+            int marker = bytes[offset + 1] & 0xff;
+            if (marker >> 4 != 0x1) {
+                throw new IOException("Malformed length in binary property list");
+            }
+            int size = 1 << (marker & 0x0f);
+            length = readLong(offset + 2, size);
+            start[0] = offset + 2 + size;
+        }
+        if (length < 0 || length > bytes.length) {
+            throw new IOException("Malformed length in binary property list");
+        }
+        return (int) length;
+    }
+
+    private void check(long offset, long size) throws IOException {
+        if (offset < 0 || size < 0 || offset + size > bytes.length) {
+            throw new IOException("Truncated binary property list");
+        }
+    }
+
+    private long readLong(int offset, int size) throws IOException {
+        // 16 byte integers only have their low half used
+        if (size == 16) {
+            offset += 8;
+            size = 8;
+        }
+        check(offset, size);
+        long value = 0;
+        for (int i = 0; i < size; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xff);
+        }
+        return value;
+    }
+
+    static byte[] write(Object root) throws IOException {
+        return new Writer().write(root);
+    }
+
+    /**
+     * Writes the objects depth first, each string once however often it is used.
+     */
+    private static class Writer {
+        private final List<Object> objects = new ArrayList<>();
+        private final Map<String, Integer> strings = new HashMap<>();
+        private int refSize;
+
+        byte[] write(Object root) throws IOException {
+            flatten(root);
+            refSize = bytesFor(objects.size());
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write(MAGIC);
+            long[] offsets = new long[objects.size()];
+            for (int i = 0; i < objects.size(); i++) {
+                offsets[i] = out.size();
+                writeObject(out, objects.get(i));
+            }
+            long offsetTable = out.size();
+            int offsetSize = bytesFor(offsetTable);
+            for (long offset : offsets) {
+                writeLong(out, offset, offsetSize);
+            }
+            out.write(new byte[6]);
+            out.write(offsetSize);
+            out.write(refSize);
+            writeLong(out, objects.size(), 8);
+            writeLong(out, 0, 8);
+            writeLong(out, offsetTable, 8);
+            return out.toByteArray();
+        }
+
+        /**
+         * Numbers the objects, containers being replaced by the numbers of what they hold.
+         */
+        private int flatten(Object value) throws IOException {
+            if (value instanceof String) {
+                Integer ref = strings.get(value);
+                if (ref != null) {
+                    return ref;
+                }
+                strings.put((String) value, objects.size());
+            }
+            int ref = objects.size();
+            objects.add(value);
+            if (value instanceof Map) {
+                Map<?, ?> dict = (Map<?, ?>) value;
+                int[] refs = new int[dict.size() * 2];
+                int i = 0;
+                for (Map.Entry<?, ?> entry : dict.entrySet()) {
+                    refs[i] = flatten(String.valueOf(entry.getKey()));
+                    refs[dict.size() + i] = flatten(entry.getValue());
+                    i++;
+                }
+                objects.set(ref, new Container(0xd, dict.size(), refs));
+            } else if (value instanceof List) {
+                List<?> array = (List<?>) value;
+                int[] refs = new int[array.size()];
+                for (int i = 0; i < refs.length; i++) {
+                    refs[i] = flatten(array.get(i));
+                }
+                objects.set(ref, new Container(0xa, refs.length, refs));
+            }
+            return ref;
+        }
+
+        private void writeObject(ByteArrayOutputStream out, Object value) throws IOException {
+            if (value instanceof Container) {
+                Container container = (Container) value;
+                writeMarker(out, container.type, container.length);
+                for (int ref : container.refs) {
+                    writeLong(out, ref, refSize);
+                }
+            } else if (value instanceof String) {
+                String string = (String) value;
+                if (isAscii(string)) {
+                    writeMarker(out, 0x5, string.length());
+                    out.write(string.getBytes(StandardCharsets.US_ASCII));
+                } else {
+                    writeMarker(out, 0x6, string.length());
+                    out.write(string.getBytes(StandardCharsets.UTF_16BE));
+                }
+            } else if (value instanceof Long || value instanceof Integer) {
+                long number = ((Number) value).longValue();
+                // negative integers always take 8 bytes
+                int size = number < 0 ? 8 : bytesFor(number);
+                int log = size == 1 ? 0 : size == 2 ? 1 : size <= 4 ? 2 : 3;
+                out.write(0x10 | log);
+                writeLong(out, number, 1 << log);
+            } else if (value instanceof Double) {
+                out.write(0x23);
+                writeLong(out, Double.doubleToLongBits((Double) value), 8);
+            } else if (value instanceof Boolean) {
+                out.write((Boolean) value ? 0x09 : 0x08);
+            } else if (value instanceof Date) {
+                out.write(0x33);
+                writeLong(out, Double.doubleToLongBits(((Date) value).getTime() / 1000.0 - EPOCH_2001), 8);
+            } else if (value instanceof byte[]) {
+                byte[] data = (byte[]) value;
+                writeMarker(out, 0x4, data.length);
+                out.write(data);
+            } else if (value instanceof Plist.Uid) {
+                long uid = ((Plist.Uid) value).getValue();
+                int size = bytesFor(uid);
+                out.write(0x80 | (size - 1));
+                writeLong(out, uid, size);
+            } else {
+                throw new IOException("Cannot write a " + (value == null ? "null" : value.getClass().getName()) + " in a property list");
+            }
+        }
+
+        private static void writeMarker(ByteArrayOutputStream out, int type, int length) {
+            if (length < 0x0f) {
+                out.write(type << 4 | length);
+            } else {
+                out.write(type << 4 | 0x0f);
+                int size = bytesFor(length);
+                int log = size == 1 ? 0 : size == 2 ? 1 : 2;
+                out.write(0x10 | log);
+                writeLong(out, length, 1 << log);
+            }
+        }
+
+        private static boolean isAscii(String string) {
+            for (int i = 0; i < string.length(); i++) {
+                if (string.charAt(i) > 0x7f) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class Container {
+        final int type;
+        final int length;
+        final int[] refs;
+
+        Container(int type, int length, int[] refs) {
+            this.type = type;
+            this.length = length;
+            this.refs = refs;
+        }
+    }
+
+    /**
+     * The fewest bytes of 1, 2, 4 and 8 an unsigned number fits in.
+     */
+    private static int bytesFor(long value) {
+        if (value < 0x100) {
+            return 1;
+        } else if (value < 0x10000) {
+            return 2;
+        } else if (value < 0x100000000L) {
+            return 4;
+        }
+        return 8;
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value, int size) {
+        for (int i = size - 1; i >= 0; i--) {
+            out.write((int) (value >>> (i * 8)));
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import hudson.Util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where the time of a build went: the wall time of the build steps of xcodebuild by target and
+ * phase, and the summary xcodebuild prints when run with {@code -showBuildTimingSummary}.
+ * Only a total per target and phase is kept, so it stays small however many steps a build has.
+ */
+public class BuildTimings implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final Comparator<Timing> SLOWEST_FIRST = new Comparator<Timing>() {
+        public int compare(Timing a, Timing b) {
+            return a.nanos == b.nanos ? 0 : a.nanos > b.nanos ? -1 : 1;
+        }
+    };
+
+    private final List<Timing> steps = new ArrayList<>();
+    private final List<Timing> summary = new ArrayList<>();
+
+    /**
+     * The steps by target and phase, rebuilt on first use after loading.
+     */
+    private transient Map<String, Timing> index;
+
+    public static class Timing implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String target;
+        private final String phase;
+        private int count;
+        private long nanos;
+
+        Timing(String target, String phase) {
+            this.target = target;
+            this.phase = phase;
+        }
+
+        /**
+         * The target of the steps, or null for a total of all targets.
+         */
+        public String getTarget() {
+            return target;
+        }
+
+        /**
+         * The phase of the steps, such as {@code CompileSwift}, or null for a total of all phases.
+         */
+        public String getPhase() {
+            return phase;
+        }
+
+        /**
+         * The number of steps, or tasks in the timing summary.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        public long getMillis() {
+            return nanos / 1000000;
+        }
+
+        public String getDuration() {
+            return Util.getTimeSpanString(getMillis());
+        }
+    }
+
+    /**
+     * Adds the time of a build step.
+     */
+    public void addStep(String target, String phase, long nanos) {
+        add(target, phase, 1, nanos);
+    }
+
+    /**
+     * Adds a line of the timing summary of xcodebuild, which covers all targets.
+     */
+    public void addSummary(String phase, int tasks, long nanos) {
+        addPhase(summary, phase, tasks, nanos);
+    }
+
+    /**
+     * Adds the timings of another build step.
+     */
+    public void addAll(BuildTimings other) {
+        for (Timing timing : other.steps) {
+            add(timing.target, timing.phase, timing.count, timing.nanos);
+        }
+        for (Timing timing : other.summary) {
+            addPhase(summary, timing.phase, timing.count, timing.nanos);
+        }
+    }
+
+    private void add(String target, String phase, int count, long nanos) {
+        if (index == null) {
+            index = new HashMap<>();
+            for (Timing timing : steps) {
+                index.put(timing.target + '\n' + timing.phase, timing);
+            }
+        }
+        String key = target + '\n' + phase;
+        Timing timing = index.get(key);
+        if (timing == null) {
+            timing = new Timing(target, phase);
+            steps.add(timing);
+            index.put(key, timing);
+        }
+        timing.count += count;
+        timing.nanos += nanos;
+    }
+
+    private static void addPhase(List<Timing> timings, String phase, int count, long nanos) {
+        for (Timing timing : timings) {
+            if (timing.phase.equals(phase)) {
+                timing.count += count;
+                timing.nanos += nanos;
+                return;
+            }
+        }
+        Timing timing = new Timing(null, phase);
+        timing.count = count;
+        timing.nanos = nanos;
+        timings.add(timing);
+    }
+
+    public boolean isEmpty() {
+        return steps.isEmpty() && summary.isEmpty();
+    }
+
+    /**
+     * The wall time of all build steps.
+     */
+    public long getTotalMillis() {
+        long nanos = 0;
+        for (Timing timing : steps) {
+            nanos += timing.nanos;
+        }
+        return nanos / 1000000;
+    }
+
+    /**
+     * The steps by target and phase, slowest first.
+     */
+    public List<Timing> getSteps() {
+        return sorted(steps);
+    }
+
+    /**
+     * The steps of each target, slowest first.
+     */
+    public List<Timing> getTargets() {
+        Map<String, Timing> targets = new LinkedHashMap<>();
+        for (Timing timing : steps) {
+            Timing total = targets.get(timing.target);
+            if (total == null) {
+                total = new Timing(timing.target, null);
+                targets.put(timing.target, total);
+            }
+            total.count += timing.count;
+            total.nanos += timing.nanos;
+        }
+        return sorted(targets.values());
+    }
+
+    /**
+     * The steps of each phase over all targets, slowest first.
+     */
+    public List<Timing> getPhases() {
+        Map<String, Timing> phases = new LinkedHashMap<>();
+        for (Timing timing : steps) {
+            Timing total = phases.get(timing.phase);
+            if (total == null) {
+                total = new Timing(null, timing.phase);
+                phases.put(timing.phase, total);
+            }
+            total.count += timing.count;
+            total.nanos += timing.nanos;
+        }
+        return sorted(phases.values());
+    }
+
+    /**
+     * The timing summary of xcodebuild, slowest first; empty unless it ran with {@code -showBuildTimingSummary}.
+     */
+    public List<Timing> getSummary() {
+        return sorted(summary);
+    }
+
+    private static List<Timing> sorted(Collection<Timing> timings) {
+        List<Timing> result = new ArrayList<>(timings);
+        Collections.sort(result, SLOWEST_FIRST);
+        return result;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes xcodebuild output to the console without the command lines of its build steps, which make
+ * up most of it. Each build step is shown by its first line, and a run of steps of the same phase,
+ * such as the CompileSwift of every file of a target, by the first of them and their number.
+ * Everything outside of build steps is written as it is, as are the lines in a build step that are
+ * not indented, such as diagnostics, together with the indented lines that follow them up to the next
+ * blank line, such as the source a diagnostic points at.
+ */
+public class CompactConsoleOutputStream extends FilterOutputStream {
+    private final Line line = new Line();
+    private boolean inBuildStep;
+    private boolean keepingIndentedLines;
+    private String phase;
+    private int skippedSteps;
+    private long bytesIn;
+    private long bytesOut;
+
+    public CompactConsoleOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        bytesIn++;
+        line.append(b);
+        if(b == '\n') {
+            lineEnded();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        bytesIn += len;
+        int end = off + len;
+        int start = off;
+        for(int i = off; i < end; i++) {
+            if(b[i] == '\n') {
+                line.append(b, start, i + 1 - start);
+                lineEnded();
+                start = i + 1;
+            }
+        }
+        line.append(b, start, end - start);
+    }
+
+    private void lineEnded() throws IOException {
+        // classify the line without its line break
+        line.length--;
+        XCodeBuildOutputParser.LineKind kind = XCodeBuildOutputParser.classify(line);
+        line.length++;
+
+        if(kind == XCodeBuildOutputParser.LineKind.BUILD_STEP) {
+            inBuildStep = true;
+            keepingIndentedLines = false;
+            String stepPhase = line.phase();
+            if(stepPhase.equals(phase)) {
+                skippedSteps++;
+            } else {
+                endRunOfSteps();
+                phase = stepPhase;
+                writeLine();
+            }
+        } else if(!inBuildStep || kind != XCodeBuildOutputParser.LineKind.OTHER && kind != XCodeBuildOutputParser.LineKind.DIAGNOSTIC) {
+            inBuildStep = false;
+            keepingIndentedLines = false;
+            endRunOfSteps();
+            writeLine();
+        } else if(line.isBlank()) {
+            keepingIndentedLines = false;
+        } else if(line.isIndented()) {
+            if(keepingIndentedLines) {
+                writeLine();
+            }
+        } else {
+            keepingIndentedLines = true;
+            endRunOfSteps();
+            writeLine();
+        }
+        line.length = 0;
+    }
+
+    private void endRunOfSteps() throws IOException {
+        if(skippedSteps > 0) {
+            byte[] summary = ("    ... and " + skippedSteps + " more " + phase + " steps\n").getBytes(StandardCharsets.UTF_8);
+            out.write(summary);
+            bytesOut += summary.length;
+        }
+        phase = null;
+        skippedSteps = 0;
+    }
+
+    private void writeLine() throws IOException {
+        out.write(line.bytes, 0, line.length);
+        bytesOut += line.length;
+    }
+
+    /**
+     * Writes what is left of the output, the last line even if it has no line break, without closing the console.
+     */
+    public void finish() throws IOException {
+        endRunOfSteps();
+        if(line.length > 0) {
+            writeLine();
+            line.length = 0;
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        super.close();
+    }
+
+    /**
+     * The number of bytes of xcodebuild output received.
+     */
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    /**
+     * The number of bytes written to the console.
+     */
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    /**
+     * The bytes of the current line, read as characters for {@link XCodeBuildOutputParser#classify(CharSequence)},
+     * which only looks for ASCII text.
+     */
+    private static final class Line implements CharSequence {
+        private byte[] bytes = new byte[1024];
+        private int length;
+
+        void append(int b) {
+            ensureCapacity(1);
+            bytes[length++] = (byte)b;
+        }
+
+        void append(byte[] b, int off, int len) {
+            ensureCapacity(len);
+            System.arraycopy(b, off, bytes, length, len);
+            length += len;
+        }
+
+        private void ensureCapacity(int more) {
+            if(length + more > bytes.length) {
+                byte[] larger = new byte[Math.max(bytes.length * 2, length + more)];
+                System.arraycopy(bytes, 0, larger, 0, length);
+                bytes = larger;
+            }
+        }
+
+        boolean isBlank() {
+            for(int i = 0; i < length; i++) {
+                if(bytes[i] != ' ' && bytes[i] != '\t' && bytes[i] != '\r' && bytes[i] != '\n') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isIndented() {
+            return length > 0 && (bytes[0] == ' ' || bytes[0] == '\t');
+        }
+
+        /**
+         * The name of the build step this line starts, which is followed by a space.
+         */
+        String phase() {
+            int end = 0;
+            while(bytes[end] != ' ') {
+                end++;
+            }
+            return new String(bytes, 0, end, StandardCharsets.US_ASCII);
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public char charAt(int index) {
+            if(index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(Integer.toString(index));
+            }
+            return (char)(bytes[index] & 0xff);
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where the output of each test suite and test case starts and ends in the console log, so that the
+ * output of one test can be read without reading the whole log.
+ * Builds can run tens of thousands of tests, so the index is kept in a file of its own next to the
+ * build log rather than with the build.
+ */
+public class ConsoleIndex implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int VERSION = 1;
+
+    private final List<Entry> suites = new ArrayList<>();
+    private final List<Entry> testCases = new ArrayList<>();
+
+    /**
+     * The entries that have started and not yet ended, by name.
+     */
+    private transient Map<String, Entry> running;
+
+    public static class Entry implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String name;
+        private final long start;
+        private long end;
+        private boolean failed;
+
+        Entry(String name, long start, long end, boolean failed) {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+            this.failed = failed;
+        }
+
+        /**
+         * The name of the suite, or the class and name of the test case separated by a slash.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * The offset of the first byte of the line that started the suite or test case.
+         */
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * The offset just after the line that ended the suite or test case, or -1 if it never ended.
+         */
+        public long getEnd() {
+            return end;
+        }
+
+        public boolean isFailed() {
+            return failed;
+        }
+    }
+
+    public void suiteStarted(String name, long offset) {
+        started(suites, "suite\n" + name, name, offset);
+    }
+
+    public void suiteEnded(String name, long offset) {
+        ended("suite\n" + name, offset, false);
+    }
+
+    public void testCaseStarted(String className, String testName, long offset) {
+        String name = className + '/' + testName;
+        started(testCases, "test\n" + name, name, offset);
+    }
+
+    public void testCaseEnded(String className, String testName, long offset, boolean failed) {
+        ended("test\n" + className + '/' + testName, offset, failed);
+    }
+
+    private void started(List<Entry> entries, String key, String name, long offset) {
+        if (running == null) {
+            running = new HashMap<>();
+        }
+        Entry entry = new Entry(name, offset, -1, false);
+        entries.add(entry);
+        running.put(key, entry);
+    }
+
+    private void ended(String key, long offset, boolean failed) {
+        Entry entry = running == null ? null : running.remove(key);
+        if (entry != null) {
+            entry.end = offset;
+            entry.failed = failed;
+        }
+    }
+
+    /**
+     * Adds the entries of another index, such as that of another Xcode build step of the build.
+     * @param base the offset the offsets of the other index are relative to
+     */
+    public void addAll(ConsoleIndex other, long base) {
+        for (Entry entry : other.suites) {
+            suites.add(new Entry(entry.name, base + entry.start, entry.end < 0 ? -1 : base + entry.end, entry.failed));
+        }
+        for (Entry entry : other.testCases) {
+            testCases.add(new Entry(entry.name, base + entry.start, entry.end < 0 ? -1 : base + entry.end, entry.failed));
+        }
+    }
+
+    public boolean isEmpty() {
+        return suites.isEmpty() && testCases.isEmpty();
+    }
+
+    public List<Entry> getSuites() {
+        return Collections.unmodifiableList(suites);
+    }
+
+    public List<Entry> getTestCases() {
+        return Collections.unmodifiableList(testCases);
+    }
+
+    public List<Entry> getFailedTestCases() {
+        List<Entry> failed = new ArrayList<>();
+        for (Entry entry : testCases) {
+            if (entry.failed) {
+                failed.add(entry);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * The last suite of the given name, as a suite can run again in another build step.
+     */
+    public Entry getSuite(String name) {
+        return find(suites, name);
+    }
+
+    public Entry getTestCase(String name) {
+        return find(testCases, name);
+    }
+
+    private static Entry find(List<Entry> entries, String name) {
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            if (entries.get(i).name.equals(name)) {
+                return entries.get(i);
+            }
+        }
+        return null;
+    }
+
+    public void save(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(VERSION);
+            write(out, suites);
+            write(out, testCases);
+        }
+    }
+
+    private static void write(DataOutputStream out, List<Entry> entries) throws IOException {
+        out.writeInt(entries.size());
+        for (Entry entry : entries) {
+            out.writeUTF(entry.name);
+            out.writeLong(entry.start);
+            out.writeLong(entry.end);
+            out.writeBoolean(entry.failed);
+        }
+    }
+
+    public static ConsoleIndex load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version " + version + " of " + file);
+            }
+            ConsoleIndex index = new ConsoleIndex();
+            read(in, index.suites);
+            read(in, index.testCases);
+            return index;
+        }
+    }
+
+    private static void read(DataInputStream in, List<Entry> entries) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            entries.add(new Entry(in.readUTF(), in.readLong(), in.readLong(), in.readBoolean()));
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The compiler warnings and errors of a build, counted per file.
+ * The same diagnostic is often reported for every file that includes a header, so each is counted
+ * once, told apart by a 64-bit hash of its file, line and message. Only the counts are kept.
+ */
+public class Diagnostics implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String WARNING = "warning";
+    public static final String ERROR = "error";
+
+    private int warnings;
+    private int errors;
+    private int duplicates;
+    private final Map<String, FileDiagnostics> files = new TreeMap<>();
+
+    /**
+     * The hashes of the diagnostics seen, in an open addressing table. Only needed while parsing.
+     */
+    private transient long[] seen;
+    private transient int seenCount;
+
+    public static class FileDiagnostics implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String file;
+        private int warnings;
+        private int errors;
+
+        FileDiagnostics(String file) {
+            this.file = file;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public int getWarnings() {
+            return warnings;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+    }
+
+    /**
+     * Counts a diagnostic unless the same one was seen before.
+     * @return whether it was new
+     */
+    public boolean add(String file, int line, String severity, String message) {
+        if (!markSeen(hash(file, line, message))) {
+            duplicates++;
+            return false;
+        }
+
+        FileDiagnostics counts = files.get(file);
+        if (counts == null) {
+            counts = new FileDiagnostics(file);
+            files.put(file, counts);
+        }
+        if (ERROR.equals(severity)) {
+            errors++;
+            counts.errors++;
+        } else {
+            warnings++;
+            counts.warnings++;
+        }
+        return true;
+    }
+
+    /**
+     * Adds the counts of another build step. Diagnostics already counted by the other step cannot be told apart any more.
+     */
+    public void addAll(Diagnostics other) {
+        warnings += other.warnings;
+        errors += other.errors;
+        duplicates += other.duplicates;
+        for (FileDiagnostics otherCounts : other.files.values()) {
+            FileDiagnostics counts = files.get(otherCounts.file);
+            if (counts == null) {
+                counts = new FileDiagnostics(otherCounts.file);
+                files.put(otherCounts.file, counts);
+            }
+            counts.warnings += otherCounts.warnings;
+            counts.errors += otherCounts.errors;
+        }
+    }
+
+    public int getWarnings() {
+        return warnings;
+    }
+
+    public int getErrors() {
+        return errors;
+    }
+
+    /**
+     * The number of diagnostics that were reported again and not counted.
+     */
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public boolean isEmpty() {
+        return files.isEmpty();
+    }
+
+    public FileDiagnostics getFile(String file) {
+        return files.get(file);
+    }
+
+    /**
+     * The files with diagnostics, those with the most errors and then warnings first.
+     */
+    public List<FileDiagnostics> getFiles() {
+        List<FileDiagnostics> result = new ArrayList<>(files.values());
+        Collections.sort(result, new Comparator<FileDiagnostics>() {
+            public int compare(FileDiagnostics a, FileDiagnostics b) {
+                if (a.errors != b.errors) {
+                    return a.errors > b.errors ? -1 : 1;
+                }
+                if (a.warnings != b.warnings) {
+                    return a.warnings > b.warnings ? -1 : 1;
+                }
+                return a.file.compareTo(b.file);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 64-bit FNV-1a, which makes collisions between distinct diagnostics of a build very unlikely.
+     */
+    static long hash(String file, int line, String message) {
+        long hash = 0xcbf29ce484222325L;
+        hash = hash(hash, file);
+        hash = (hash ^ ':') * 0x100000001b3L;
+        hash = (hash ^ line) * 0x100000001b3L;
+        hash = (hash ^ ':') * 0x100000001b3L;
+        return hash(hash, message);
+    }
+
+    private static long hash(long hash, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private boolean markSeen(long hash) {
+        if (seen == null) {
+            seen = new long[64];
+        } else if (seenCount * 2 >= seen.length) {
+            long[] old = seen;
+            seen = new long[old.length * 2];
+            seenCount = 0;
+            for (long value : old) {
+                if (value != 0) {
+                    markSeen(value);
+                }
+            }
+        }
+        // zero marks an empty slot
+        if (hash == 0) {
+            hash = 1;
+        }
+        int mask = seen.length - 1;
+        for (int i = (int) (hash ^ (hash >>> 32)) & mask; ; i = (i + 1) & mask) {
+            if (seen[i] == hash) {
+                return false;
+            }
+            if (seen[i] == 0) {
+                seen[i] = hash;
+                seenCount++;
+                return true;
+            }
+        }
+    }
+}
@@ -38,6 +38,7 @@ import jenkins.model.GlobalConfiguration;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Logger;
 
 import javax.servlet.ServletException;
@@ -88,26 +89,43 @@ public final class GlobalConfigurationImpl extends GlobalConfiguration {
     public FormValidation doCheckXcodebuildPath(@QueryParameter String value) throws IOException, ServletException {
         if (StringUtils.isEmpty(value)) {
             return FormValidation.error(Messages.XCodeBuilder_xcodebuildPathNotSet());
-        } else {
-            // TODO: check that the file exists (and if an agent is used ?)
         }
-        return FormValidation.ok();
+        return checkToolOnNodes(value);
     }
 
     public FormValidation doCheckAgvtoolPath(@QueryParameter String value) throws IOException, ServletException {
         if (StringUtils.isEmpty(value)) {
             return FormValidation.error(Messages.XCodeBuilder_agvtoolPathNotSet());
-        } else {
-            // TODO: check that the file exists (and if an agent is used ?)
         }
-        return FormValidation.ok();
+        return checkToolOnNodes(value);
     }
 
     public FormValidation doCheckXcrunPath(@QueryParameter String value) throws IOException, ServletException {
         if (StringUtils.isEmpty(value)) {
             return FormValidation.error(Messages.XCodeBuilder_xcrunPathNotSet());
-        } else {
-            // TODO: check that the file exists (and if an agent is used ?)
+        }
+        return checkToolOnNodes(value);
+    }
+
+    /**
+     * Checks a tool against what the nodes told of it at their last Xcode build, as there is no
+     * telling which nodes the path is meant for and asking them all could take a while.
+     */
+    private static FormValidation checkToolOnNodes(String path) {
+        List<String> found = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        for (ToolchainCache.Toolchain toolchain : ToolchainCache.getToolchains()) {
+            Boolean toolFound = toolchain.getStamp().isFound(path);
+            if (toolFound != null) {
+                String node = StringUtils.isEmpty(toolchain.getNode()) ? "master" : toolchain.getNode();
+                (toolFound ? found : missing).add(node);
+            }
+        }
+        if (!missing.isEmpty()) {
+            return FormValidation.warning(Messages.XCodeBuilder_toolNotFound(StringUtils.join(missing, ", ")));
+        }
+        if (!found.isEmpty()) {
+            return FormValidation.ok(Messages.XCodeBuilder_toolFound(StringUtils.join(found, ", ")));
         }
         return FormValidation.ok();
     }
@@ -29,11 +29,25 @@
 
 package au.com.rayh;
 
+import au.com.rayh.report.StreamingTestSuite;
+import au.com.rayh.report.TestSuite;
 import hudson.FilePath;
 import hudson.model.TaskListener;
-import java.io.FilterOutputStream;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import jenkins.security.MasterToSlaveCallable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.net.InetAddress;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.bind.JAXBException;
 
 /**
  *
@@ -44,41 +58,97 @@ public class JenkinsXCodeBuildOutputParser extends XCodeBuildOutputParser {
     private FilePath testReportsDir;
 
 	public JenkinsXCodeBuildOutputParser(FilePath workspace, TaskListener buildListener) throws IOException, InterruptedException {
+        this(workspace, buildListener, buildListener.getLogger());
+    }
+
+    /**
+     * @param console where the output goes after parsing, such as a {@link CompactConsoleOutputStream} in front of the build log
+     */
+    public JenkinsXCodeBuildOutputParser(FilePath workspace, TaskListener buildListener, OutputStream console) throws IOException, InterruptedException {
 		super();
         this.buildListener = buildListener;
-        this.captureOutputStream = new LineBasedFilterOutputStream();
+        this.captureOutputStream = new LineBasedFilterOutputStream(console);
 
         testReportsDir = workspace.child("test-reports");
         testReportsDir.mkdirs();
+        // the reports describe the machine the tests ran on, which is the agent
+        hostnameLookup = testReportsDir.getChannel().callAsync(new GetHostname());
     }
 
-    public class LineBasedFilterOutputStream extends FilterOutputStream {
-        StringBuilder buffer = new StringBuilder();
-
+    public class LineBasedFilterOutputStream extends XCodeBuildOutputParser.LineBasedFilterOutputStream {
         public LineBasedFilterOutputStream() {
-            super(buildListener.getLogger());
+            this(buildListener.getLogger());
+        }
+
+        public LineBasedFilterOutputStream(OutputStream console) {
+            super(console);
         }
 
         @Override
-        public void write(int b) throws IOException {
-            super.write(b);
-            if((char)b == '\n') {
-                try {
-                    handleLine(buffer.toString());
-                    buffer = new StringBuilder();
-                } catch(Exception e) {  // Very fugly
-                    buildListener.fatalError(e.getMessage(), e);
-                    throw new IOException(e);
-                }
-            } else {
-                buffer.append((char)b);
-            }
+        protected IOException lineFailed(Exception e) {
+            buildListener.fatalError(e.getMessage(), e);
+            return super.lineFailed(e);
         }
     }
 
 	@Override
-	protected OutputStream outputForSuite() throws IOException,
+	protected OutputStream outputForSuite(TestSuite suite) throws IOException,
 			InterruptedException {
-		return testReportsDir.child("TEST-" + currentTestSuite.getName() + ".xml").write();
+		return testReportsDir.child(reportFileName(suite)).write();
 	}
+
+    /**
+     * Sends a batch of reports to a remote workspace in a single call rather than a round trip per file.
+     */
+    @Override
+    protected void writeTestReports(List<TestSuite> suites) throws IOException, InterruptedException, JAXBException {
+        if (!testReportsDir.isRemote()) {
+            super.writeTestReports(suites);
+            return;
+        }
+        Map<String, byte[]> reports = new LinkedHashMap<>();
+        for (TestSuite suite : suites) {
+            if (suite instanceof StreamingTestSuite) {
+                // may be too large to hold in memory, so it is streamed to the remote file instead
+                try (OutputStream report = outputForSuite(suite)) {
+                    writeTestReport(suite, report);
+                }
+                continue;
+            }
+            ByteArrayOutputStream report = new ByteArrayOutputStream();
+            marshal(suite, report);
+            reports.put(reportFileName(suite), report.toByteArray());
+        }
+        if (!reports.isEmpty()) {
+            testReportsDir.act(new WriteReports(reports));
+        }
+    }
+
+    @Override
+    protected void testReportsFailed(Exception e) {
+        buildListener.fatalError(e.getMessage(), e);
+    }
+
+    private static final class WriteReports extends MasterToSlaveFileCallable<Void> {
+        private final Map<String, byte[]> reports;
+
+        WriteReports(Map<String, byte[]> reports) {
+            this.reports = reports;
+        }
+
+        public Void invoke(File dir, VirtualChannel channel) throws IOException {
+            for (Map.Entry<String, byte[]> report : reports.entrySet()) {
+                try (OutputStream out = new FileOutputStream(new File(dir, report.getKey()))) {
+                    out.write(report.getValue());
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class GetHostname extends MasterToSlaveCallable<String, IOException> {
+        public String call() throws IOException {
+            return InetAddress.getLocalHost().getHostName();
+        }
+    }
 }
@@ -0,0 +1,316 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * A pull reader of JSON that reads a value at a time, so a document of any size can be read
+ * without building it in memory.
+ * It is meant for trusted tool output such as xcresulttool's, and so is lenient about where commas
+ * and colons go.
+ */
+public class JsonReader implements Closeable {
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int pos;
+    private int limit;
+    private final StringBuilder text = new StringBuilder();
+    private Token peeked;
+
+    /**
+     * For each object or array being read, whether it is an object and whether a name comes next.
+     */
+    private boolean[] inObject = new boolean[32];
+    private boolean[] expectingName = new boolean[32];
+    private int depth;
+
+    public JsonReader(Reader in) {
+        this.in = in;
+    }
+
+    public Token peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+        int c = nextNonSeparator();
+        switch (c) {
+            case -1:
+                peeked = Token.END_DOCUMENT;
+                break;
+            case '{':
+                peeked = Token.BEGIN_OBJECT;
+                break;
+            case '}':
+                peeked = Token.END_OBJECT;
+                break;
+            case '[':
+                peeked = Token.BEGIN_ARRAY;
+                break;
+            case ']':
+                peeked = Token.END_ARRAY;
+                break;
+            case '"':
+                peeked = depth > 0 && inObject[depth - 1] && expectingName[depth - 1] ? Token.NAME : Token.STRING;
+                break;
+            case 't':
+            case 'f':
+                pos--;
+                peeked = Token.BOOLEAN;
+                break;
+            case 'n':
+                pos--;
+                peeked = Token.NULL;
+                break;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    pos--;
+                    peeked = Token.NUMBER;
+                    break;
+                }
+                throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+        return peeked;
+    }
+
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(true);
+    }
+
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        depth--;
+        valueRead();
+    }
+
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(false);
+    }
+
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        depth--;
+        valueRead();
+    }
+
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        String name = readQuoted();
+        expectingName[depth - 1] = false;
+        return name;
+    }
+
+    /**
+     * Reads a string, or the text of a number or boolean.
+     */
+    public String nextString() throws IOException {
+        Token token = peek();
+        String value;
+        if (token == Token.STRING) {
+            peeked = null;
+            value = readQuoted();
+        } else if (token == Token.NUMBER || token == Token.BOOLEAN) {
+            peeked = null;
+            value = readLiteral();
+        } else {
+            throw syntaxError("Expected a string but was " + token);
+        }
+        valueRead();
+        return value;
+    }
+
+    public void nextNull() throws IOException {
+        expect(Token.NULL);
+        if (!"null".equals(readLiteral())) {
+            throw syntaxError("Expected null");
+        }
+        valueRead();
+    }
+
+    /**
+     * Skips the next value, including everything in it if it is an object or an array.
+     */
+    public void skipValue() throws IOException {
+        int level = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    level++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    level++;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    level--;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    level--;
+                    break;
+                case NAME:
+                    nextName();
+                    break;
+                case NULL:
+                    nextNull();
+                    break;
+                case END_DOCUMENT:
+                    throw syntaxError("Unexpected end of document");
+                default:
+                    nextString();
+                    break;
+            }
+        } while (level > 0);
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void expect(Token token) throws IOException {
+        if (peek() != token) {
+            throw syntaxError("Expected " + token + " but was " + peeked);
+        }
+        peeked = null;
+    }
+
+    private void push(boolean object) {
+        if (depth == inObject.length) {
+            inObject = Arrays.copyOf(inObject, depth * 2);
+            expectingName = Arrays.copyOf(expectingName, depth * 2);
+        }
+        inObject[depth] = object;
+        expectingName[depth] = object;
+        depth++;
+    }
+
+    private void valueRead() {
+        if (depth > 0 && inObject[depth - 1]) {
+            expectingName[depth - 1] = true;
+        }
+    }
+
+    private int read() throws IOException {
+        if (pos == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[pos++];
+    }
+
+    private int nextNonSeparator() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == ',' || c == ':');
+        return c;
+    }
+
+    private String readQuoted() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                throw syntaxError("Unterminated string");
+            } else if (c == '"') {
+                return text.toString();
+            } else if (c == '\\') {
+                text.append(readEscaped());
+            } else {
+                text.append((char) c);
+            }
+        }
+    }
+
+    private char readEscaped() throws IOException {
+        int c = read();
+        switch (c) {
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("Malformed unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            case -1:
+                throw syntaxError("Unterminated string");
+            default:
+                return (char) c;
+        }
+    }
+
+    private String readLiteral() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                break;
+            }
+            if (c == ',' || c == ':' || c == '}' || c == ']' || c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                pos--;
+                break;
+            }
+            text.append((char) c);
+        }
+        return text.toString();
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message + " in JSON");
+    }
+}
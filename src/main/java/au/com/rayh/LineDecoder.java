@@ -0,0 +1,164 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes UTF-8 xcodebuild output into lines as the bytes arrive.
+ * The decoder, its character buffer and the line handed to the {@link LineHandler} are reused, and
+ * a multi-byte sequence split between two writes is carried over to the next one. Malformed input
+ * is replaced rather than rejected, as xcodebuild happily prints whatever the tools emit.
+ */
+public class LineDecoder {
+
+    /**
+     * Receives every complete line, without its terminating newline.
+     */
+    public interface LineHandler {
+        /**
+         * @param line only valid for the duration of the call, as its content is reused for the next line
+         */
+        void lineEnded(CharSequence line) throws IOException;
+    }
+
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer pending = ByteBuffer.allocate(8);
+    private final ByteBuffer singleByte = ByteBuffer.allocate(1);
+    private final Line line = new Line();
+    private final LineHandler handler;
+    private CharBuffer chars = CharBuffer.allocate(1024);
+    private int scanned;
+
+    public LineDecoder(LineHandler handler) {
+        this.handler = handler;
+    }
+
+    public void write(int b) throws IOException {
+        singleByte.clear();
+        singleByte.put((byte)b);
+        singleByte.flip();
+        write(singleByte);
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException {
+        write(ByteBuffer.wrap(b, off, len));
+    }
+
+    /**
+     * Decodes all remaining bytes of the buffer, holding back a trailing incomplete character.
+     */
+    public void write(ByteBuffer in) throws IOException {
+        // complete a character split by the previous write one byte at a time
+        while(pending.position() > 0 && in.hasRemaining()) {
+            pending.put(in.get());
+            pending.flip();
+            decode(pending);
+            pending.compact();
+        }
+        decode(in);
+        if(in.hasRemaining()) {
+            pending.put(in);
+        }
+    }
+
+    private void decode(ByteBuffer in) throws IOException {
+        while(true) {
+            CoderResult result = decoder.decode(in, chars, false);
+            emitLines();
+            if(result.isUnderflow()) {
+                return;
+            }
+            if(chars.remaining() < 2) {
+                // a line longer than the buffer
+                CharBuffer larger = CharBuffer.allocate(chars.capacity() * 2);
+                chars.flip();
+                larger.put(chars);
+                chars = larger;
+            }
+        }
+    }
+
+    private void emitLines() throws IOException {
+        char[] a = chars.array();
+        int end = chars.position();
+        int lineStart = 0;
+        for(int i = scanned; i < end; i++) {
+            if(a[i] == '\n') {
+                line.set(a, lineStart, i - lineStart);
+                handler.lineEnded(line);
+                lineStart = i + 1;
+            }
+        }
+        if(lineStart > 0) {
+            System.arraycopy(a, lineStart, a, 0, end - lineStart);
+            chars.position(end - lineStart);
+        }
+        scanned = chars.position();
+    }
+
+    /**
+     * A window onto the decoder's character buffer.
+     */
+    private static final class Line implements CharSequence {
+        private char[] chars;
+        private int offset;
+        private int length;
+
+        void set(char[] chars, int offset, int length) {
+            this.chars = chars;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public char charAt(int index) {
+            if(index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(Integer.toString(index));
+            }
+            return chars[offset + index];
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, offset, length);
+        }
+    }
+}
@@ -0,0 +1,478 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the targets and build configurations of a project from its {@code project.pbxproj}, so
+ * they can be listed without starting {@code xcodebuild -list}, or on a machine without Xcode.
+ * <p>
+ * The file is an old-style ASCII property list: a dictionary whose {@code objects} map an id to
+ * each object of the project. The root {@code PBXProject} lists the targets and refers to the
+ * {@code XCConfigurationList} of the project, whose {@code XCBuildConfiguration}s are the build
+ * configurations. The file is read in a single pass; of the objects, only those of these kinds
+ * are kept, and the build settings and everything else are skipped over without being held.
+ */
+public class PbxprojParser {
+    private static final String PROJECT = "PBXProject";
+    private static final String[] TARGETS = { "PBXNativeTarget", "PBXAggregateTarget", "PBXLegacyTarget" };
+    private static final String CONFIGURATION_LIST = "XCConfigurationList";
+    private static final String CONFIGURATION = "XCBuildConfiguration";
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int pos;
+    private int limit;
+    private final StringBuilder text = new StringBuilder();
+    private final StringBuilder id = new StringBuilder();
+
+    private final Map<String, PbxObject> objects = new HashMap<>();
+    private String rootObject;
+
+    private final List<String> targets = new ArrayList<>();
+    private final List<String> configurations = new ArrayList<>();
+
+    /**
+     * The fields kept of an object, the ids it refers to being its targets or its build configurations.
+     */
+    private static class PbxObject {
+        String isa;
+        String name;
+        String buildConfigurationList;
+        List<String> references = Collections.emptyList();
+    }
+
+    public PbxprojParser(Reader in) throws IOException {
+        this.in = in;
+        readProject();
+        resolve();
+    }
+
+    public List<String> getTargets() {
+        return targets;
+    }
+
+    public List<String> getConfigurations() {
+        return configurations;
+    }
+
+    /**
+     * What {@code xcodebuild -list} would say of a project, in the layout of
+     * {@link XcodeBuildListParser#format()}. The schemes are those of the project, or a scheme for
+     * each target when it has none, as Xcode creates them.
+     */
+    public static String list(File project) throws IOException {
+        PbxprojParser parser;
+        try (Reader in = new InputStreamReader(new FileInputStream(new File(project, "project.pbxproj")), StandardCharsets.UTF_8)) {
+            parser = new PbxprojParser(in);
+        }
+        List<String> schemes = new ArrayList<>();
+        for (String scheme : XcodeBuildListCache.schemesOf(project)) {
+            String name = StringUtils.removeEnd(scheme, ".xcscheme");
+            if (!schemes.contains(name)) {
+                schemes.add(name);
+            }
+        }
+        if (schemes.isEmpty()) {
+            schemes.addAll(parser.getTargets());
+        }
+        return new XcodeBuildListParser(parser.getTargets(), parser.getConfigurations(), schemes).format();
+    }
+
+    /**
+     * Lists the project xcodebuild would build in the directory it is run on, or returns null if
+     * there is no telling which one that is or it cannot be read, so xcodebuild can tell what is wrong.
+     */
+    public static class ListCallable extends MasterToSlaveFileCallable<String> {
+        private static final long serialVersionUID = 1L;
+
+        private final String projectFile;
+
+        /**
+         * @param projectFile the project as given to xcodebuild, or null for the only one of the directory
+         */
+        public ListCallable(String projectFile) {
+            this.projectFile = projectFile;
+        }
+
+        public String invoke(File projectRoot, VirtualChannel channel) {
+            File project = XcodeBuildListCache.projectOf(projectRoot, projectFile);
+            if (project == null) {
+                return null;
+            }
+            try {
+                return list(project);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+
+    private void readProject() throws IOException {
+        expect('{');
+        while (peek() != '}') {
+            readString(text);
+            expect('=');
+            if (textEquals(text, "objects")) {
+                readObjects();
+            } else if (textEquals(text, "rootObject")) {
+                readString(text);
+                rootObject = text.toString();
+            } else {
+                skipValue();
+            }
+            expect(';');
+        }
+        expect('}');
+    }
+
+    private void readObjects() throws IOException {
+        expect('{');
+        while (peek() != '}') {
+            readString(id);
+            expect('=');
+            PbxObject object = readObject();
+            if (object != null) {
+                objects.put(id.toString(), object);
+            }
+            expect(';');
+        }
+        expect('}');
+    }
+
+    /**
+     * Reads an object, returning it if it is of a kind kept. Xcode writes the isa of an object
+     * first, which is what lets the others be skipped without reading any of their fields.
+     */
+    private PbxObject readObject() throws IOException {
+        expect('{');
+        PbxObject object = null;
+        boolean kept = true;
+        while (peek() != '}') {
+            readString(text);
+            expect('=');
+            if (!kept) {
+                skipValue();
+            } else if (textEquals(text, "isa")) {
+                readString(text);
+                kept = isKept(text);
+                if (kept) {
+                    object = object != null ? object : new PbxObject();
+                    object.isa = text.toString();
+                }
+            } else if (textEquals(text, "name")) {
+                readString(text);
+                object = object != null ? object : new PbxObject();
+                object.name = text.toString();
+            } else if (textEquals(text, "buildConfigurationList")) {
+                readString(text);
+                object = object != null ? object : new PbxObject();
+                object.buildConfigurationList = text.toString();
+            } else if (textEquals(text, "targets") || textEquals(text, "buildConfigurations")) {
+                object = object != null ? object : new PbxObject();
+                object.references = readArray();
+            } else {
+                skipValue();
+            }
+            expect(';');
+        }
+        expect('}');
+        return kept && object != null && object.isa != null ? object : null;
+    }
+
+    private void resolve() throws IOException {
+        PbxObject project = rootObject != null ? objects.get(rootObject) : null;
+        if (project == null || !PROJECT.equals(project.isa)) {
+            throw new IOException("No project in project.pbxproj");
+        }
+        for (String target : project.references) {
+            PbxObject object = objects.get(target);
+            if (object != null && object.name != null) {
+                targets.add(object.name);
+            }
+        }
+        PbxObject list = objects.get(project.buildConfigurationList);
+        if (list != null && CONFIGURATION_LIST.equals(list.isa)) {
+            for (String configuration : list.references) {
+                PbxObject object = objects.get(configuration);
+                if (object != null && CONFIGURATION.equals(object.isa) && object.name != null) {
+                    configurations.add(object.name);
+                }
+            }
+        }
+    }
+
+    private static boolean isKept(CharSequence isa) {
+        if (textEquals(isa, PROJECT) || textEquals(isa, CONFIGURATION_LIST) || textEquals(isa, CONFIGURATION)) {
+            return true;
+        }
+        for (String target : TARGETS) {
+            if (textEquals(isa, target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean textEquals(CharSequence text, String value) {
+        if (text.length() != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (text.charAt(i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<String> readArray() throws IOException {
+        List<String> values = new ArrayList<>();
+        expect('(');
+        while (peek() != ')') {
+            readString(text);
+            values.add(text.toString());
+            if (peek() == ',') {
+                pos++;
+            }
+        }
+        expect(')');
+        return values;
+    }
+
+    /**
+     * Skips a string, a dictionary, an array or data, and everything in it.
+     */
+    private void skipValue() throws IOException {
+        int c = peek();
+        if (c == '{') {
+            pos++;
+            while (peek() != '}') {
+                skipString();
+                expect('=');
+                skipValue();
+                expect(';');
+            }
+            pos++;
+        } else if (c == '(') {
+            pos++;
+            while (peek() != ')') {
+                skipValue();
+                if (peek() == ',') {
+                    pos++;
+                }
+            }
+            pos++;
+        } else if (c == '<') {
+            pos++;
+            while ((c = read()) != '>') {
+                if (c == -1) {
+                    throw syntaxError("Unterminated data");
+                }
+            }
+        } else {
+            skipString();
+        }
+    }
+
+    private void readString(StringBuilder out) throws IOException {
+        out.setLength(0);
+        readString(out, true);
+    }
+
+    private void skipString() throws IOException {
+        readString(null, false);
+    }
+
+    private void readString(StringBuilder out, boolean keep) throws IOException {
+        int c = peek();
+        if (c == '"') {
+            pos++;
+            while (true) {
+                if (!fill()) {
+                    throw syntaxError("Unterminated string");
+                }
+                // the plain run of the string that is in the buffer
+                int start = pos;
+                while (pos < limit && buffer[pos] != '"' && buffer[pos] != '\\') {
+                    pos++;
+                }
+                if (keep) {
+                    out.append(buffer, start, pos - start);
+                }
+                if (pos < limit) {
+                    if (buffer[pos++] == '"') {
+                        break;
+                    }
+                    c = readEscaped();
+                    if (keep) {
+                        out.append((char) c);
+                    }
+                }
+            }
+        } else if (isUnquoted(c)) {
+            do {
+                int start = pos;
+                while (pos < limit && isUnquoted(buffer[pos])) {
+                    pos++;
+                }
+                if (keep) {
+                    out.append(buffer, start, pos - start);
+                }
+            } while (pos == limit && fill());
+        } else {
+            throw syntaxError(c == -1 ? "Unexpected end of file" : "Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private int readEscaped() throws IOException {
+        int c = read();
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'U':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("Malformed unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return value;
+            case -1:
+                throw syntaxError("Unterminated string");
+            default:
+                return c;
+        }
+    }
+
+    private static boolean isUnquoted(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '_' || c == '$' || c == '/' || c == ':' || c == '.' || c == '-' || c == '+';
+    }
+
+    private void expect(char expected) throws IOException {
+        int c = peek();
+        if (c != expected) {
+            throw syntaxError(c == -1 ? "Expected '" + expected + "' but the file ended" : "Expected '" + expected + "' but was '" + (char) c + "'");
+        }
+        pos++;
+    }
+
+    /**
+     * The next character that is not white space or in a comment, without reading it.
+     */
+    private int peek() throws IOException {
+        while (fill()) {
+            char c = buffer[pos];
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                pos++;
+            } else if (c == '/' && peekSecond() == '*') {
+                pos += 2;
+                boolean star = false;
+                while (true) {
+                    if (!fill()) {
+                        throw syntaxError("Unterminated comment");
+                    }
+                    if (star && buffer[pos] == '/') {
+                        pos++;
+                        break;
+                    }
+                    while (pos < limit && buffer[pos] != '*') {
+                        pos++;
+                    }
+                    star = pos < limit;
+                    if (star) {
+                        pos++;
+                    }
+                }
+            } else if (c == '/' && peekSecond() == '/') {
+                while (fill() && buffer[pos] != '\n') {
+                    pos++;
+                }
+            } else {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The character after the next one, keeping both in the buffer.
+     */
+    private int peekSecond() throws IOException {
+        if (pos + 1 == limit) {
+            buffer[0] = buffer[pos];
+            pos = 0;
+            int read = in.read(buffer, 1, buffer.length - 1);
+            limit = read > 0 ? read + 1 : 1;
+        }
+        return pos + 1 < limit ? buffer[pos + 1] : -1;
+    }
+
+    private int read() throws IOException {
+        return fill() ? buffer[pos++] : -1;
+    }
+
+    /**
+     * Whether there is a character to read, reading more of the file if needed.
+     */
+    private boolean fill() throws IOException {
+        if (pos < limit) {
+            return true;
+        }
+        limit = in.read(buffer, 0, buffer.length);
+        pos = 0;
+        if (limit <= 0) {
+            limit = 0;
+            return false;
+        }
+        return true;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message + " in project.pbxproj");
+    }
+}
@@ -0,0 +1,451 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.bind.DatatypeConverter;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Reads and writes property lists, such as the Info.plist of an app or an archive, in the XML
+ * format and the binary {@code bplist00} one, so they can be read and changed without
+ * {@code PlistBuddy}.
+ * <p>
+ * A dictionary is a {@link Map} of strings, in the order of the file, an array a {@link List}, and
+ * the other values a {@link String}, {@link Long}, {@link Double}, {@link Boolean}, {@link Date},
+ * {@code byte[]} or {@link Uid}. Entries are named the way {@code PlistBuddy} names them, such as
+ * {@code :ApplicationProperties:CFBundleVersion}, the index of an item naming it in an array.
+ */
+public final class Plist {
+    public enum Format {
+        XML, BINARY
+    }
+
+    /**
+     * A reference of a keyed archive, which only the binary format has.
+     */
+    public static final class Uid {
+        private final long value;
+
+        public Uid(long value) {
+            this.value = value;
+        }
+
+        public long getValue() {
+            return value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Uid && ((Uid) o).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (value ^ (value >>> 32));
+        }
+
+        @Override
+        public String toString() {
+            return "CF$UID " + value;
+        }
+    }
+
+    private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<!DOCTYPE plist PUBLIC \"-//Apple//DTD PLIST 1.0//EN\" \"http://www.apple.com/DTDs/PropertyList-1.0.dtd\">\n"
+            + "<plist version=\"1.0\">\n";
+
+    private Plist() {
+    }
+
+    /**
+     * The format of a property list, told by its first bytes.
+     */
+    public static Format formatOf(byte[] bytes) {
+        return BinaryPlist.isBinary(bytes) ? Format.BINARY : Format.XML;
+    }
+
+    public static Object read(byte[] bytes) throws IOException {
+        return formatOf(bytes) == Format.BINARY ? BinaryPlist.read(bytes) : readXml(bytes);
+    }
+
+    public static byte[] write(Object value, Format format) throws IOException {
+        return format == Format.BINARY ? BinaryPlist.write(value) : writeXml(value);
+    }
+
+    /**
+     * The value of an entry, or null if there is no such entry.
+     */
+    public static Object get(Object root, String entry) {
+        Object value = root;
+        for (String name : names(entry)) {
+            value = child(value, name);
+            if (value == null) {
+                return null;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Sets the value of an entry that is already there, as {@code PlistBuddy -c Set} does. Returns
+     * false, changing nothing, if the entry does not exist.
+     */
+    @SuppressWarnings("unchecked")
+    public static boolean set(Object root, String entry, Object value) {
+        List<String> names = names(entry);
+        if (names.isEmpty()) {
+            return false;
+        }
+        Object parent = root;
+        for (String name : names.subList(0, names.size() - 1)) {
+            parent = child(parent, name);
+        }
+        String name = names.get(names.size() - 1);
+        if (parent instanceof Map) {
+            Map<String, Object> dict = (Map<String, Object>) parent;
+            if (dict.containsKey(name)) {
+                dict.put(name, value);
+                return true;
+            }
+        }
+        if (parent instanceof List) {
+            int index = index(name);
+            List<Object> list = (List<Object>) parent;
+            if (index >= 0 && index < list.size()) {
+                list.set(index, value);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads entries of the property list it is run on, in a single read of the file. The values are
+     * as {@code PlistBuddy -c Print} prints them; an entry that is missing or is a dictionary or an
+     * array has none, and neither has any entry of a file that does not exist.
+     */
+    public static class ReadCallable extends MasterToSlaveFileCallable<Map<String, String>> {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] entries;
+
+        public ReadCallable(String... entries) {
+            this.entries = entries;
+        }
+
+        public Map<String, String> invoke(File file, VirtualChannel channel) throws IOException {
+            Map<String, String> values = new LinkedHashMap<>();
+            if (!file.isFile()) {
+                return values;
+            }
+            Object root = read(Files.readAllBytes(file.toPath()));
+            for (String entry : entries) {
+                Object value = get(root, entry);
+                if (value != null && !(value instanceof Map) && !(value instanceof List)) {
+                    values.put(entry, print(value));
+                }
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Sets a string entry of the property list it is run on, writing it back in the format it was in.
+     * Returns false if the file or the entry does not exist.
+     */
+    public static class SetCallable extends MasterToSlaveFileCallable<Boolean> {
+        private static final long serialVersionUID = 1L;
+
+        private final String entry;
+        private final String value;
+
+        public SetCallable(String entry, String value) {
+            this.entry = entry;
+            this.value = value;
+        }
+
+        public Boolean invoke(File file, VirtualChannel channel) throws IOException {
+            if (!file.isFile()) {
+                return false;
+            }
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            Object root = read(bytes);
+            if (!set(root, entry, value)) {
+                return false;
+            }
+            if (Files.isSymbolicLink(file.toPath())) {
+                // replacing it would put a copy where the link was
+                Files.write(file.toPath(), write(root, formatOf(bytes)));
+                return true;
+            }
+            // a build reading the file meanwhile sees it whole, before or after
+            File temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+            try {
+                Files.write(temp.toPath(), write(root, formatOf(bytes)));
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp.toPath());
+            }
+            return true;
+        }
+    }
+
+    static String print(Object value) {
+        if (value instanceof Date) {
+            return dateFormat().format((Date) value);
+        }
+        if (value instanceof byte[]) {
+            return new String((byte[]) value, StandardCharsets.UTF_8);
+        }
+        return String.valueOf(value);
+    }
+
+    private static List<String> names(String entry) {
+        List<String> names = new ArrayList<>();
+        for (String name : entry.split(":")) {
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    private static Object child(Object value, String name) {
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).get(name);
+        }
+        if (value instanceof List) {
+            int index = index(name);
+            List<?> list = (List<?>) value;
+            return index >= 0 && index < list.size() ? list.get(index) : null;
+        }
+        return null;
+    }
+
+    private static int index(String name) {
+        try {
+            return Integer.parseInt(name);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * The format of the dates of the XML format, which are always in UTC.
+     */
+    private static SimpleDateFormat dateFormat() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.ROOT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    }
+
+    private static Object readXml(byte[] bytes) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            // every plist has the DOCTYPE of Apple's DTD, which is neither needed nor fetched
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+            factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+            factory.setExpandEntityReferences(false);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            Element plist = builder.parse(new ByteArrayInputStream(bytes)).getDocumentElement();
+            Element value = firstElement(plist);
+            if (!"plist".equals(plist.getTagName()) || value == null) {
+                throw new IOException("Not a property list");
+            }
+            return readXml(value);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Not a property list", e);
+        }
+    }
+
+    private static Object readXml(Element element) throws IOException {
+        String text = element.getTextContent();
+        switch (element.getTagName()) {
+            case "dict":
+                Map<String, Object> dict = new LinkedHashMap<>();
+                String key = null;
+                for (Element child = firstElement(element); child != null; child = nextElement(child)) {
+                    if (key == null) {
+                        if (!"key".equals(child.getTagName())) {
+                            throw new IOException("Expected a key but was " + child.getTagName());
+                        }
+                        key = child.getTextContent();
+                    } else {
+                        dict.put(key, readXml(child));
+                        key = null;
+                    }
+                }
+                return dict;
+            case "array":
+                List<Object> array = new ArrayList<>();
+                for (Element child = firstElement(element); child != null; child = nextElement(child)) {
+                    array.add(readXml(child));
+                }
+                return array;
+            case "string":
+                return text;
+            case "integer":
+                return Long.parseLong(text.trim());
+            case "real":
+                return Double.parseDouble(text.trim());
+            case "true":
+                return Boolean.TRUE;
+            case "false":
+                return Boolean.FALSE;
+            case "date":
+                try {
+                    return dateFormat().parse(text.trim());
+                } catch (ParseException e) {
+                    throw new IOException("Malformed date " + text, e);
+                }
+            case "data":
+                return DatatypeConverter.parseBase64Binary(text.replaceAll("\\s", ""));
+            default:
+                throw new IOException("Unknown element " + element.getTagName());
+        }
+    }
+
+    private static Element firstElement(Node parent) {
+        Node child = parent.getFirstChild();
+        while (child != null && !(child instanceof Element)) {
+            child = child.getNextSibling();
+        }
+        return (Element) child;
+    }
+
+    private static Element nextElement(Node node) {
+        Node next = node.getNextSibling();
+        while (next != null && !(next instanceof Element)) {
+            next = next.getNextSibling();
+        }
+        return (Element) next;
+    }
+
+    private static byte[] writeXml(Object value) throws IOException {
+        StringBuilder out = new StringBuilder(XML_HEADER);
+        writeXml(out, value, 0);
+        out.append("</plist>\n");
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void writeXml(StringBuilder out, Object value, int depth) throws IOException {
+        indent(out, depth);
+        if (value instanceof Map) {
+            Map<?, ?> dict = (Map<?, ?>) value;
+            if (dict.isEmpty()) {
+                out.append("<dict/>\n");
+                return;
+            }
+            out.append("<dict>\n");
+            for (Map.Entry<?, ?> entry : dict.entrySet()) {
+                indent(out, depth + 1);
+                escape(out.append("<key>"), String.valueOf(entry.getKey())).append("</key>\n");
+                writeXml(out, entry.getValue(), depth + 1);
+            }
+            indent(out, depth);
+            out.append("</dict>\n");
+        } else if (value instanceof List) {
+            List<?> array = (List<?>) value;
+            if (array.isEmpty()) {
+                out.append("<array/>\n");
+                return;
+            }
+            out.append("<array>\n");
+            for (Object item : array) {
+                writeXml(out, item, depth + 1);
+            }
+            indent(out, depth);
+            out.append("</array>\n");
+        } else if (value instanceof String) {
+            escape(out.append("<string>"), (String) value).append("</string>\n");
+        } else if (value instanceof Long || value instanceof Integer) {
+            out.append("<integer>").append(value).append("</integer>\n");
+        } else if (value instanceof Double) {
+            out.append("<real>").append(value).append("</real>\n");
+        } else if (value instanceof Boolean) {
+            out.append((Boolean) value ? "<true/>\n" : "<false/>\n");
+        } else if (value instanceof Date) {
+            out.append("<date>").append(dateFormat().format((Date) value)).append("</date>\n");
+        } else if (value instanceof byte[]) {
+            out.append("<data>\n");
+            indent(out, depth);
+            out.append(DatatypeConverter.printBase64Binary((byte[]) value)).append('\n');
+            indent(out, depth);
+            out.append("</data>\n");
+        } else {
+            throw new IOException("Cannot write a " + (value == null ? "null" : value.getClass().getName()) + " in a property list");
+        }
+    }
+
+    private static void indent(StringBuilder out, int depth) {
+        for (int i = 0; i < depth; i++) {
+            out.append('\t');
+        }
+    }
+
+    private static StringBuilder escape(StringBuilder out, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    out.append("&amp;");
+                    break;
+                case '<':
+                    out.append("&lt;");
+                    break;
+                case '>':
+                    out.append("&gt;");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+        return out;
+    }
+}
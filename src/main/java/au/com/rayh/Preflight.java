@@ -0,0 +1,212 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import hudson.Launcher;
+import hudson.Proc;
+import hudson.Util;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The processes a build runs before xcodebuild to find out about the toolchain, the project and
+ * the keychain. None of them changes anything, so they all run at the same time; the output of
+ * each is kept apart so it can be printed as a block, and they share a single deadline after
+ * which whatever is still running is killed. A probe may be given an earlier deadline of its own.
+ */
+class Preflight {
+    private final long deadline;
+    private final long started = System.nanoTime();
+    private final List<Probe> probes = new ArrayList<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool(
+            new NamingThreadFactory(new DaemonThreadFactory(), "Xcode preflight"));
+
+    static class Probe {
+        private final String name;
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private Proc proc;
+        private Future<Integer> exit;
+        private long started;
+        private long deadline;
+        private volatile long finished;
+        private int returnCode = -1;
+        private boolean timedOut;
+
+        Probe(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * What the process printed, on stdout and stderr alike.
+         */
+        public String getOutput() {
+            try {
+                return output.toString("UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        /**
+         * The exit code of the process, or -1 if it did not finish before the deadline.
+         */
+        public int getReturnCode() {
+            return returnCode;
+        }
+
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        public boolean isSuccess() {
+            return !timedOut && returnCode == 0;
+        }
+
+        /**
+         * How long the process ran, up to now if it is still running.
+         */
+        public long getMillis() {
+            long end = finished != 0 ? finished : System.nanoTime();
+            return TimeUnit.NANOSECONDS.toMillis(end - started);
+        }
+    }
+
+    Preflight(long timeout, TimeUnit unit) {
+        this.deadline = started + unit.toNanos(timeout);
+    }
+
+    /**
+     * Starts a probe without waiting for it. The output of the process goes to the probe, so
+     * the launch should not redirect it.
+     */
+    Probe start(String name, Launcher.ProcStarter starter) throws IOException, InterruptedException {
+        return start(name, deadline - System.nanoTime(), TimeUnit.NANOSECONDS, starter);
+    }
+
+    /**
+     * Starts a probe that is killed once it has run for the given time, or at the deadline of the
+     * preflight if that comes first.
+     */
+    Probe start(String name, long timeout, TimeUnit unit, Launcher.ProcStarter starter) throws IOException, InterruptedException {
+        final Probe probe = new Probe(name);
+        probe.started = System.nanoTime();
+        probe.deadline = Math.min(deadline, probe.started + unit.toNanos(timeout));
+        try {
+            probe.proc = starter.stdout(probe.output).start();
+        } catch (IOException e) {
+            // do not leave the probes started so far behind
+            close();
+            throw e;
+        }
+        probe.exit = executor.submit(new Callable<Integer>() {
+            public Integer call() throws IOException, InterruptedException {
+                try {
+                    return probe.proc.join();
+                } finally {
+                    probe.finished = System.nanoTime();
+                }
+            }
+        });
+        probes.add(probe);
+        return probe;
+    }
+
+    /**
+     * Waits for every probe started so far to finish, killing those still running at their deadline.
+     */
+    void awaitAll() throws IOException, InterruptedException {
+        try {
+            for (Probe probe : probes) {
+                try {
+                    probe.returnCode = probe.exit.get(Math.max(probe.deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    probe.timedOut = true;
+                    probe.proc.kill();
+                } catch (ExecutionException e) {
+                    throw new IOException("Failed to run " + probe.name, e.getCause());
+                }
+            }
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Kills the probes still running and lets the threads waiting on them go.
+     */
+    void close() throws IOException, InterruptedException {
+        try {
+            for (Probe probe : probes) {
+                if (!probe.exit.isDone()) {
+                    probe.proc.kill();
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Prints how long the preflight took, against how long it would have taken had the probes
+     * run one after another.
+     */
+    void printTimings(PrintStream logger) {
+        long sequential = 0;
+        for (Probe probe : probes) {
+            sequential += probe.getMillis();
+        }
+        long elapsed = 0;
+        for (Probe probe : probes) {
+            elapsed = Math.max(elapsed, TimeUnit.NANOSECONDS.toMillis(
+                    (probe.finished != 0 ? probe.finished : System.nanoTime()) - started));
+        }
+        logger.println(Messages.XCodeBuilder_preflightTimings(Util.getTimeSpanString(elapsed), Util.getTimeSpanString(sequential)));
+        for (Probe probe : probes) {
+            if (probe.timedOut) {
+                logger.println(Messages.XCodeBuilder_preflightProbeTimedOut(probe.name, Util.getTimeSpanString(probe.getMillis())));
+            } else {
+                logger.println(Messages.XCodeBuilder_preflightProbe(probe.name, Util.getTimeSpanString(probe.getMillis())));
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import au.com.rayh.report.TestSuite;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Writes finished test suites in the background so that the thread draining xcodebuild's output
+ * never waits on marshalling or on a remote file write.
+ * Suites are queued in a bounded queue, which only blocks the parser if the writer falls far behind,
+ * and are handed to {@link XCodeBuildOutputParser#writeTestReports(List)} in batches.
+ * Call {@link #await()} once the output is complete to wait for the reports and learn about failures.
+ */
+public class TestReportWriter implements Runnable {
+    private static final int CAPACITY = 256;
+    private static final int MAX_BATCH = 32;
+
+    /**
+     * Shared by all builds; idle threads go away after a minute.
+     */
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(
+            new NamingThreadFactory(new DaemonThreadFactory(), "Xcode test report writer"));
+
+    private final XCodeBuildOutputParser parser;
+    private final BlockingQueue<TestSuite> queue = new ArrayBlockingQueue<>(CAPACITY);
+    // guarded by this
+    private boolean draining;
+    private int pending;
+    private Exception failure;
+
+    public TestReportWriter(XCodeBuildOutputParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Queues a finished suite. The caller must not modify it afterwards.
+     */
+    public void submit(TestSuite suite) throws InterruptedException {
+        synchronized (this) {
+            pending++;
+        }
+        queue.put(suite);
+        synchronized (this) {
+            if (!draining) {
+                draining = true;
+                EXECUTOR.execute(this);
+            }
+        }
+    }
+
+    /**
+     * Waits until every submitted suite has been written.
+     * @throws IOException if any report could not be written since the last call
+     */
+    public void await() throws IOException, InterruptedException {
+        Exception e;
+        synchronized (this) {
+            while (pending > 0) {
+                wait();
+            }
+            e = failure;
+            failure = null;
+        }
+        if (e != null) {
+            throw new IOException("Failed to write test reports: " + e.getMessage(), e);
+        }
+    }
+
+    public void run() {
+        List<TestSuite> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            synchronized (this) {
+                if (queue.isEmpty()) {
+                    draining = false;
+                    return;
+                }
+            }
+            queue.drainTo(batch, MAX_BATCH);
+            try {
+                parser.writeTestReports(batch);
+            } catch (Exception e) {
+                failed(e);
+                discard(batch);
+            } finally {
+                synchronized (this) {
+                    pending -= batch.size();
+                    notifyAll();
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Releases the temporary files of the streaming suites of a batch that failed, which are left
+     * behind by the suites the failure kept from being written.
+     */
+    private static void discard(List<TestSuite> batch) {
+        for (TestSuite suite : batch) {
+            try {
+                XCodeBuildOutputParser.discardTestSuite(suite);
+            } catch (IOException e) {
+                // the failure to write the batch is the one that gets reported
+            }
+        }
+    }
+
+    private void failed(Exception e) {
+        boolean first;
+        synchronized (this) {
+            first = failure == null;
+            if (first) {
+                failure = e;
+            }
+        }
+        if (first) {
+            parser.testReportsFailed(e);
+        }
+    }
+}
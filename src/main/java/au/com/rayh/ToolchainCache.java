@@ -0,0 +1,273 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import jenkins.security.MasterToSlaveCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What each node has told about its Xcode toolchain: whether the configured tools are there, the
+ * output of {@code xcodebuild -version} and the SDKs it knows of. None of that changes until
+ * Xcode is updated or another one is selected, so a build only asks the node for a {@link Stamp},
+ * which takes no process, and probes the toolchain again when the stamp differs from the one
+ * recorded or the record is older than {@link #TTL}.
+ */
+public class ToolchainCache {
+    /**
+     * How long what is known of a toolchain is trusted, in milliseconds.
+     */
+    static final long TTL = Long.getLong(ToolchainCache.class.getName() + ".ttl", TimeUnit.HOURS.toMillis(12));
+
+    /**
+     * Where {@code xcode-select} keeps the developer directory it selects.
+     */
+    private static final String XCODE_SELECT_LINK = "/var/db/xcode_select_link";
+
+    private static final Map<String, Toolchain> toolchains = new ConcurrentHashMap<>();
+
+    /**
+     * The state of the toolchain of a node, taken without running anything there. The tools are
+     * the configured ones, and the developer directory is the one {@code DEVELOPER_DIR} or
+     * {@code xcode-select} picks.
+     */
+    public static class Stamp implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String xcodebuildPath;
+        private final String agvtoolPath;
+        private final String xcrunPath;
+        private final String developerDir;
+        private final long xcodebuildModified;
+        private final boolean agvtoolFound;
+        private final boolean xcrunFound;
+
+        Stamp(String xcodebuildPath, String agvtoolPath, String xcrunPath, String developerDir, long xcodebuildModified, boolean agvtoolFound, boolean xcrunFound) {
+            this.xcodebuildPath = xcodebuildPath;
+            this.agvtoolPath = agvtoolPath;
+            this.xcrunPath = xcrunPath;
+            this.developerDir = developerDir;
+            this.xcodebuildModified = xcodebuildModified;
+            this.agvtoolFound = agvtoolFound;
+            this.xcrunFound = xcrunFound;
+        }
+
+        public boolean isXcodebuildFound() {
+            return xcodebuildModified != 0;
+        }
+
+        public boolean isAgvtoolFound() {
+            return agvtoolFound;
+        }
+
+        public boolean isXcrunFound() {
+            return xcrunFound;
+        }
+
+        /**
+         * Whether the tool at the given path was found, or null if it is none of the tools of the stamp.
+         */
+        public Boolean isFound(String path) {
+            if (path.equals(xcodebuildPath)) {
+                return isXcodebuildFound();
+            } else if (path.equals(agvtoolPath)) {
+                return agvtoolFound;
+            } else if (path.equals(xcrunPath)) {
+                return xcrunFound;
+            }
+            return null;
+        }
+
+        /**
+         * The selected developer directory, or null if it is not known.
+         */
+        public String getDeveloperDir() {
+            return developerDir;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Stamp)) {
+                return false;
+            }
+            Stamp other = (Stamp) o;
+            return xcodebuildPath.equals(other.xcodebuildPath)
+                    && agvtoolPath.equals(other.agvtoolPath)
+                    && xcrunPath.equals(other.xcrunPath)
+                    && (developerDir == null ? other.developerDir == null : developerDir.equals(other.developerDir))
+                    && xcodebuildModified == other.xcodebuildModified
+                    && agvtoolFound == other.agvtoolFound
+                    && xcrunFound == other.xcrunFound;
+        }
+
+        @Override
+        public int hashCode() {
+            return xcodebuildPath.hashCode() * 31 + (int) (xcodebuildModified ^ (xcodebuildModified >>> 32));
+        }
+    }
+
+    /**
+     * Takes the {@link Stamp} of the node it runs on.
+     */
+    public static class StampCallable extends MasterToSlaveCallable<Stamp, IOException> {
+        private static final long serialVersionUID = 1L;
+
+        private final String xcodebuildPath;
+        private final String agvtoolPath;
+        private final String xcrunPath;
+        private final String developerDir;
+
+        /**
+         * @param developerDir the {@code DEVELOPER_DIR} of the build, or null to use what
+         *                     {@code xcode-select} selected
+         */
+        public StampCallable(String xcodebuildPath, String agvtoolPath, String xcrunPath, String developerDir) {
+            this.xcodebuildPath = xcodebuildPath;
+            this.agvtoolPath = agvtoolPath;
+            this.xcrunPath = xcrunPath;
+            this.developerDir = developerDir;
+        }
+
+        public Stamp call() throws IOException {
+            String developerDir = this.developerDir;
+            if (developerDir == null) {
+                Path link = Paths.get(XCODE_SELECT_LINK);
+                if (Files.isSymbolicLink(link)) {
+                    developerDir = Files.readSymbolicLink(link).toString();
+                }
+            }
+            // /usr/bin/xcodebuild only hands over to the one of the developer directory, which is the one an update replaces
+            long modified = new File(xcodebuildPath).lastModified();
+            if (modified != 0 && developerDir != null) {
+                modified = Math.max(modified, new File(developerDir, "usr/bin/xcodebuild").lastModified());
+            }
+            return new Stamp(xcodebuildPath, agvtoolPath, xcrunPath, developerDir, modified,
+                    new File(agvtoolPath).exists(), new File(xcrunPath).exists());
+        }
+    }
+
+    /**
+     * What was found out about the toolchain of a node.
+     */
+    public static class Toolchain {
+        private final String node;
+        private final Stamp stamp;
+        private final long recorded;
+        private final String version;
+        private final String sdks;
+
+        Toolchain(String node, Stamp stamp, long recorded, String version, String sdks) {
+            this.node = node;
+            this.stamp = stamp;
+            this.recorded = recorded;
+            this.version = version;
+            this.sdks = sdks;
+        }
+
+        public String getNode() {
+            return node;
+        }
+
+        public Stamp getStamp() {
+            return stamp;
+        }
+
+        /**
+         * When the toolchain was probed, in milliseconds since the epoch.
+         */
+        public long getRecorded() {
+            return recorded;
+        }
+
+        /**
+         * The output of {@code xcodebuild -version}, or null if it has not been probed.
+         */
+        public String getVersion() {
+            return version;
+        }
+
+        /**
+         * The output of {@code xcodebuild -showsdks}, or null if it has not been probed.
+         */
+        public String getSdks() {
+            return sdks;
+        }
+
+        public boolean isProbed() {
+            return version != null && sdks != null;
+        }
+    }
+
+    private ToolchainCache() {
+    }
+
+    /**
+     * What is known of the toolchain of a node, if it still has the given stamp and the record has
+     * not expired; null otherwise. Either way the stamp is kept, so validation can tell whether
+     * the tools were found.
+     */
+    public static Toolchain get(String node, Stamp stamp) {
+        return get(node, stamp, System.currentTimeMillis());
+    }
+
+    static Toolchain get(String node, Stamp stamp, long now) {
+        Toolchain toolchain = toolchains.get(node);
+        if (toolchain != null && toolchain.isProbed() && toolchain.stamp.equals(stamp) && now - toolchain.recorded < TTL) {
+            return toolchain;
+        }
+        toolchains.put(node, new Toolchain(node, stamp, now, null, null));
+        return null;
+    }
+
+    /**
+     * Records what a build found out about the toolchain of a node.
+     */
+    public static Toolchain put(String node, Stamp stamp, String version, String sdks) {
+        Toolchain toolchain = new Toolchain(node, stamp, System.currentTimeMillis(), version, sdks);
+        toolchains.put(node, toolchain);
+        return toolchain;
+    }
+
+    /**
+     * What is known of the toolchain of every node that ran an Xcode build.
+     */
+    public static List<Toolchain> getToolchains() {
+        return new ArrayList<>(toolchains.values());
+    }
+
+    static void clear() {
+        toolchains.clear();
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * The functions and expressions the Swift compiler took longest to type-check, from the timings it
+ * prints with {@code -Xfrontend -debug-time-function-bodies} or {@code -debug-time-expression-type-checking}
+ * and the warnings of {@code -warn-long-function-bodies} and {@code -warn-long-expression-type-checking}.
+ * A build can time millions of functions, so only the slowest are kept, in a heap with the fastest of
+ * them on top.
+ */
+public class TypeCheckHotspots implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int DEFAULT_SIZE = 100;
+
+    private final int size;
+    private final PriorityQueue<Hotspot> hotspots;
+
+    /**
+     * The hotspots in the heap by location and description, rebuilt on first use after loading.
+     */
+    private transient Map<String, Hotspot> index;
+
+    public static class Hotspot implements Comparable<Hotspot>, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String file;
+        private final int line;
+        private final String description;
+        private final double millis;
+
+        public Hotspot(String file, int line, String description, double millis) {
+            this.file = file;
+            this.line = line;
+            this.description = description;
+            this.millis = millis;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        /**
+         * What was type-checked, such as {@code instance method reload()}, or {@code expression}.
+         */
+        public String getDescription() {
+            return description;
+        }
+
+        public double getMillis() {
+            return millis;
+        }
+
+        String getKey() {
+            return file + ':' + line + '\n' + description;
+        }
+
+        public int compareTo(Hotspot other) {
+            return Double.compare(millis, other.millis);
+        }
+    }
+
+    public TypeCheckHotspots() {
+        this(DEFAULT_SIZE);
+    }
+
+    public TypeCheckHotspots(int size) {
+        this.size = size;
+        this.hotspots = new PriorityQueue<>(size + 1);
+    }
+
+    /**
+     * Whether a timing would be kept, because there is room for it or it is slower than the fastest hotspot.
+     */
+    public boolean isHotspot(double millis) {
+        return hotspots.size() < size || millis > hotspots.peek().millis;
+    }
+
+    /**
+     * Adds a timing unless it is faster than all the hotspots kept. The same function is timed
+     * again for every architecture, so only the slowest time of each is kept.
+     */
+    public void add(String file, int line, String description, double millis) {
+        if (!isHotspot(millis)) {
+            return;
+        }
+        add(new Hotspot(file, line, description, millis));
+    }
+
+    private void add(Hotspot hotspot) {
+        Map<String, Hotspot> index = index();
+        String key = hotspot.getKey();
+        Hotspot same = index.get(key);
+        if (same != null) {
+            if (same.millis >= hotspot.millis) {
+                return;
+            }
+            hotspots.remove(same);
+        } else if (hotspots.size() >= size) {
+            Hotspot fastest = hotspots.peek();
+            if (hotspot.millis <= fastest.millis) {
+                return;
+            }
+            hotspots.poll();
+            index.remove(fastest.getKey());
+        }
+        hotspots.add(hotspot);
+        index.put(key, hotspot);
+    }
+
+    /**
+     * Adds the hotspots of another build step, keeping the slowest of both.
+     */
+    public void addAll(TypeCheckHotspots other) {
+        for (Hotspot hotspot : other.hotspots) {
+            add(hotspot);
+        }
+    }
+
+    private Map<String, Hotspot> index() {
+        if (index == null) {
+            index = new HashMap<>();
+            for (Hotspot hotspot : hotspots) {
+                index.put(hotspot.getKey(), hotspot);
+            }
+        }
+        return index;
+    }
+
+    public boolean isEmpty() {
+        return hotspots.isEmpty();
+    }
+
+    /**
+     * The hotspot at the same place and of the same function as the given one, or null.
+     */
+    public Hotspot find(Hotspot hotspot) {
+        return index().get(hotspot.getKey());
+    }
+
+    /**
+     * The hotspots, slowest first.
+     */
+    public List<Hotspot> getHotspots() {
+        List<Hotspot> result = new ArrayList<>(hotspots);
+        Collections.sort(result, Collections.reverseOrder());
+        return result;
+    }
+
+    /**
+     * The hotspots by file, the file with the slowest hotspot first.
+     */
+    public Map<String, List<Hotspot>> getFiles() {
+        Map<String, List<Hotspot>> files = new LinkedHashMap<>();
+        for (Hotspot hotspot : getHotspots()) {
+            List<Hotspot> file = files.get(hotspot.file);
+            if (file == null) {
+                file = new ArrayList<>();
+                files.put(hotspot.file, file);
+            }
+            file.add(hotspot);
+        }
+        return files;
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import au.com.rayh.report.TestCase;
+import au.com.rayh.report.TestFailure;
+import au.com.rayh.report.TestSuite;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds test suites from the JSON xcresulttool exports from an .xcresult bundle, as an alternative to
+ * parsing the output of xcodebuild.
+ * The invocation record, {@code xcresulttool get --format json --path <bundle>}, has the start time
+ * and the failure messages; the tests, {@code xcresulttool get --format json --path <bundle> --id <testsRef>},
+ * has the test classes and test cases. Read the record first.
+ * <p>
+ * Both are read with a {@link JsonReader}. Only the test cases of the class being read are held on to,
+ * each test class is handed to the {@link TestSuiteHandler} as soon as it has been read.
+ */
+public class XCResultParser {
+    public interface TestSuiteHandler {
+        void testSuiteEnded(TestSuite suite) throws IOException;
+    }
+
+    private static final String GROUP = "ActionTestSummaryGroup";
+    private static final String TEST = "ActionTestMetadata";
+
+    private final String hostname;
+    private Date startTime = new Date();
+    private String testsRef;
+    private final Map<String, List<TestFailure>> failures = new HashMap<>();
+    private TestSuiteHandler handler;
+
+    public XCResultParser(String hostname) {
+        this.hostname = hostname;
+    }
+
+    /**
+     * Reads the start time of the tests, their failure messages and the id of the tests.
+     */
+    public void readInvocationRecord(Reader json) throws IOException {
+        Value record = readValue(new JsonReader(json));
+
+        Value actions = record.get("actions");
+        if (actions != null && !actions.values.isEmpty()) {
+            Value action = actions.values.get(0);
+            String startedTime = action.string("startedTime");
+            if (startedTime != null) {
+                startTime = parseDate(startedTime);
+            }
+            Value testsRef = action.get("actionResult") == null ? null : action.get("actionResult").get("testsRef");
+            if (testsRef != null) {
+                this.testsRef = testsRef.string("id");
+            }
+        }
+
+        Value issues = record.get("issues");
+        Value failureSummaries = issues == null ? null : issues.get("testFailureSummaries");
+        if (failureSummaries != null) {
+            for (Value summary : failureSummaries.values) {
+                String testCaseName = summary.string("testCaseName");
+                if (testCaseName == null) {
+                    continue;
+                }
+                Value location = summary.get("documentLocationInCreatingWorkspace");
+                TestFailure failure = new TestFailure(summary.string("message"), location == null ? null : location(location.string("url")));
+                String key = testKey(testCaseName);
+                List<TestFailure> testFailures = failures.get(key);
+                if (testFailures == null) {
+                    testFailures = new ArrayList<>();
+                    failures.put(key, testFailures);
+                }
+                testFailures.add(failure);
+            }
+        }
+    }
+
+    /**
+     * The id to export the tests with, if the record has tests.
+     */
+    public String getTestsRef() {
+        return testsRef;
+    }
+
+    /**
+     * Reads the tests, handing each test class to the handler as a suite once all of its test cases are read.
+     */
+    public void readTests(Reader json, TestSuiteHandler handler) throws IOException {
+        this.handler = handler;
+        try {
+            readValue(new JsonReader(json));
+        } finally {
+            this.handler = null;
+        }
+    }
+
+    public List<TestSuite> readTests(Reader json) throws IOException {
+        final List<TestSuite> suites = new ArrayList<>();
+        readTests(json, new TestSuiteHandler() {
+            public void testSuiteEnded(TestSuite suite) {
+                suites.add(suite);
+            }
+        });
+        return suites;
+    }
+
+    /**
+     * An xcresult object: its type, its value if it is a plain value, its elements if it is an array
+     * and its fields otherwise. Groups of tests are handled as they are read and are not kept.
+     */
+    private static class Value {
+        String type;
+        String value;
+        final List<Value> values = new ArrayList<>();
+        final Map<String, Value> fields = new HashMap<>();
+
+        Value get(String name) {
+            return fields.get(name);
+        }
+
+        String string(String name) {
+            Value field = fields.get(name);
+            return field == null ? null : field.value;
+        }
+    }
+
+    private Value readValue(JsonReader in) throws IOException {
+        Value result = new Value();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if ("_type".equals(name)) {
+                result.type = readTypeName(in);
+            } else if ("_value".equals(name)) {
+                result.value = in.nextString();
+            } else if ("_values".equals(name)) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    Value element = readFieldValue(in);
+                    if (element != null) {
+                        result.values.add(element);
+                    }
+                }
+                in.endArray();
+            } else {
+                Value field = readFieldValue(in);
+                if (field != null) {
+                    result.fields.put(name, field);
+                }
+            }
+        }
+        in.endObject();
+
+        if (GROUP.equals(result.type)) {
+            groupEnded(result);
+            return null;
+        }
+        return result;
+    }
+
+    private Value readFieldValue(JsonReader in) throws IOException {
+        if (in.peek() == JsonReader.Token.BEGIN_OBJECT) {
+            return readValue(in);
+        }
+        in.skipValue();
+        return null;
+    }
+
+    private static String readTypeName(JsonReader in) throws IOException {
+        String typeName = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("_name".equals(in.nextName())) {
+                typeName = in.nextString();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return typeName;
+    }
+
+    /**
+     * A group whose subtests are test cases is a test class, which becomes a suite. Groups of groups,
+     * such as the test bundles, have no suite of their own.
+     */
+    private void groupEnded(Value group) throws IOException {
+        Value subtests = group.get("subtests");
+        if (subtests == null || handler == null) {
+            return;
+        }
+
+        String suiteName = group.string("name");
+        TestSuite suite = new TestSuite(hostname, suiteName, startTime);
+        boolean hasTests = false;
+        for (Value test : subtests.values) {
+            if (!TEST.equals(test.type)) {
+                continue;
+            }
+            String status = test.string("testStatus");
+            if ("Skipped".equals(status)) {
+                // the report model has no skipped test cases
+                continue;
+            }
+            hasTests = true;
+
+            TestCase testCase = new TestCase(suiteName, methodName(test.string("name")));
+            testCase.setTime(seconds(test.string("duration")));
+            suite.addTest();
+            if ("Failure".equals(status)) {
+                List<TestFailure> testFailures = failures.get(testKey(test.string("identifier")));
+                if (testFailures != null) {
+                    testCase.getFailures().addAll(testFailures);
+                } else {
+                    testCase.getFailures().add(new TestFailure("Test failed", null));
+                }
+                suite.addFailure();
+            }
+            suite.addTestCase(testCase);
+        }
+        if (!hasTests) {
+            return;
+        }
+
+        suite.setEndTime(new Date(startTime.getTime() + Math.round(seconds(group.string("duration")) * 1000)));
+        handler.testSuiteEnded(suite);
+    }
+
+    /**
+     * Test cases are named like {@code testExample()} in the tests, as by the line parser they are not.
+     */
+    private static String methodName(String name) {
+        return name != null && name.endsWith("()") ? name.substring(0, name.length() - 2) : name;
+    }
+
+    /**
+     * Tests are identified as {@code Class/testExample()} and failures as {@code Class.testExample()}.
+     */
+    private static String testKey(String name) {
+        return name == null ? null : name.replace('/', '.');
+    }
+
+    private static float seconds(String duration) {
+        return duration == null ? 0f : Float.parseFloat(duration);
+    }
+
+    /**
+     * Turns {@code file:///path/Tests.swift#...&StartingLineNumber=30} into {@code /path/Tests.swift:31}
+     * as line numbers start at zero in the URL.
+     */
+    private static String location(String url) {
+        if (url == null) {
+            return null;
+        }
+        String path = url.startsWith("file://") ? url.substring("file://".length()) : url;
+        int fragment = path.indexOf('#');
+        if (fragment < 0) {
+            return path;
+        }
+        String location = path.substring(0, fragment);
+        for (String parameter : path.substring(fragment + 1).split("&")) {
+            if (parameter.startsWith("StartingLineNumber=")) {
+                try {
+                    return location + ":" + (Integer.parseInt(parameter.substring("StartingLineNumber=".length())) + 1);
+                } catch (NumberFormatException e) {
+                    return location;
+                }
+            }
+        }
+        return location;
+    }
+
+    private static Date parseDate(String text) throws IOException {
+        try {
+            return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").parse(text);
+        } catch (ParseException e) {
+            throw new IOException("Unexpected date in xcresult: " + text, e);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.TaskListener;
+import hudson.remoting.RemoteOutputStream;
+import hudson.util.StreamTaskListener;
+import jenkins.security.MasterToSlaveCallable;
+import org.apache.commons.io.output.TeeOutputStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Runs xcodebuild and parses its output on the machine the workspace is on, writing the test reports
+ * straight to its disk. Only the console output and a {@link Result} go back to the master.
+ */
+public class XCodeBuildCallable extends MasterToSlaveCallable<XCodeBuildCallable.Result, IOException> {
+    private static final long serialVersionUID = 1L;
+
+    private final ArrayList<String> commandLine;
+    private final EnvVars envs;
+    private final String workspace;
+    private final OutputStream console;
+    private boolean streamingTestReports;
+    private boolean parallelTesting;
+    private boolean writingTestReports = true;
+    private boolean collectingTestResults;
+    private boolean compactConsole;
+    private String rawLog;
+
+    public XCodeBuildCallable(List<String> commandLine, EnvVars envs, FilePath workspace, TaskListener listener) {
+        this.commandLine = new ArrayList<>(commandLine);
+        this.envs = envs;
+        this.workspace = workspace.getRemote();
+        this.console = new RemoteOutputStream(listener.getLogger());
+    }
+
+    public void setStreamingTestReports(boolean streamingTestReports) {
+        this.streamingTestReports = streamingTestReports;
+    }
+
+    public void setParallelTesting(boolean parallelTesting) {
+        this.parallelTesting = parallelTesting;
+    }
+
+    /**
+     * Whether to write the JUnit reports of the tests to the workspace.
+     */
+    public void setWritingTestReports(boolean writingTestReports) {
+        this.writingTestReports = writingTestReports;
+    }
+
+    /**
+     * Whether to send the results of the tests back with the {@link Result}, to publish them to the build.
+     */
+    public void setCollectingTestResults(boolean collectingTestResults) {
+        this.collectingTestResults = collectingTestResults;
+    }
+
+    /**
+     * Whether to leave the command lines of the build steps out of the console, see {@link CompactConsoleOutputStream}.
+     */
+    public void setCompactConsole(boolean compactConsole) {
+        this.compactConsole = compactConsole;
+    }
+
+    /**
+     * The file in the workspace to keep all of the output of xcodebuild in, compressed with gzip, or null.
+     */
+    public void setRawLog(String rawLog) {
+        this.rawLog = rawLog;
+    }
+
+    /**
+     * Prints the command line the way the launcher would, which it is kept from doing so that where the
+     * output of xcodebuild starts in the console log is known before it runs.
+     */
+    public void printCommandLine(TaskListener listener) {
+        StringBuilder buf = new StringBuilder();
+        buf.append('[').append(workspace.replaceFirst("^.+[/\\\\]", "")).append("] $");
+        for (String arg : commandLine) {
+            buf.append(' ');
+            if (arg.indexOf(' ') >= 0) {
+                if (arg.indexOf('"') >= 0) {
+                    buf.append('\'').append(arg).append('\'');
+                } else {
+                    buf.append('"').append(arg).append('"');
+                }
+            } else {
+                buf.append(arg);
+            }
+        }
+        listener.getLogger().println(buf);
+    }
+
+    public Result call() throws IOException {
+        TaskListener listener = new StreamTaskListener(console);
+        try {
+            return run(new Launcher.LocalLauncher(listener), new FilePath(new File(workspace)), listener);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running xcodebuild", e);
+        } finally {
+            listener.getLogger().flush();
+        }
+    }
+
+    /**
+     * Runs xcodebuild with the given launcher and parses its output where this is called, which is
+     * what a launcher that cannot be bypassed, such as a decorated one, requires.
+     */
+    public Result run(Launcher launcher, FilePath workspace, TaskListener listener) throws IOException, InterruptedException {
+        OutputStream console = listener.getLogger();
+        CompactConsoleOutputStream compactConsole = null;
+        if (this.compactConsole) {
+            compactConsole = new CompactConsoleOutputStream(console);
+            console = compactConsole;
+        }
+        OutputStream rawLog = null;
+        if (this.rawLog != null) {
+            rawLog = new GZIPOutputStream(workspace.child(this.rawLog).write(), 64 * 1024);
+            console = new TeeOutputStream(console, rawLog);
+        }
+
+        try {
+            XCodeBuildOutputParser parser = new JenkinsXCodeBuildOutputParser(workspace, listener, console);
+            parser.setStreamingTestReports(streamingTestReports);
+            parser.setParallelTesting(parallelTesting);
+            parser.setWritingTestReports(writingTestReports);
+            parser.setCollectingTestResults(collectingTestResults);
+            // the command line was printed by the build step, see printCommandLine
+            int returnCode = launcher.launch().envs(envs).cmds(commandLine).stdout(parser.getOutputStream()).pwd(workspace).quiet(true).join();
+            // test reports are written in the background, make sure they are all out before looking at the results
+            parser.awaitTestReports();
+            return new Result(returnCode, parser);
+        } finally {
+            if (rawLog != null) {
+                rawLog.close();
+            }
+            if (compactConsole != null) {
+                compactConsole.finish();
+                listener.getLogger().println("Wrote " + compactConsole.getBytesOut() + " of " + compactConsole.getBytesIn()
+                        + " bytes of xcodebuild output to the console"
+                        + (this.rawLog != null ? ", all of it is in " + this.rawLog : ""));
+            }
+        }
+    }
+
+    /**
+     * What the master needs to know about a run of xcodebuild.
+     */
+    public static class Result implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        public final int returnCode;
+        public final int exitCode;
+        public final int tests;
+        public final int failures;
+        public final int errors;
+        public final Diagnostics diagnostics;
+        public final BuildTimings buildTimings;
+        public final TypeCheckHotspots typeCheckHotspots;
+        public final ConsoleIndex consoleIndex;
+        public final XCodeTestResults testResults;
+
+        Result(int returnCode, XCodeBuildOutputParser parser) {
+            this.returnCode = returnCode;
+            this.exitCode = parser.getExitCode();
+            this.tests = parser.getTestCount();
+            this.failures = parser.getFailureCount();
+            this.errors = parser.getErrorCount();
+            this.diagnostics = parser.getDiagnostics();
+            this.buildTimings = parser.getBuildTimings();
+            this.typeCheckHotspots = parser.getTypeCheckHotspots();
+            this.consoleIndex = parser.getConsoleIndex();
+            this.testResults = parser.getTestResults();
+        }
+    }
+}
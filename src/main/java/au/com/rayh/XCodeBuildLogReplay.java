@@ -0,0 +1,115 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.output.NullOutputStream;
+
+/**
+ * Regenerates the JUnit test reports of a build from its saved xcodebuild output, such as a console
+ * log, an archived xcodebuild.log or the compressed log kept by {@link XCodeBuilder#keepRawLog}, without
+ * running the build again.
+ * The log is memory mapped a chunk at a time, or decompressed if its name ends in {@code .gz}, and fed to
+ * the same parser a build uses.
+ */
+public class XCodeBuildLogReplay {
+    /**
+     * Mapping a chunk at a time keeps logs of several GB within the address space a JVM can map at once.
+     */
+    private static final long CHUNK_SIZE = 64L * 1024 * 1024;
+
+    private final File log;
+    private boolean parallelTesting;
+
+    public XCodeBuildLogReplay(File log) {
+        this.log = log;
+    }
+
+    /**
+     * Whether the log was written with {@code -parallel-testing-enabled YES}.
+     */
+    public void setParallelTesting(boolean parallelTesting) {
+        this.parallelTesting = parallelTesting;
+    }
+
+    /**
+     * Writes the reports of every suite in the log to the given directory.
+     * @return the parser, which has the exit code and test counts found in the log
+     */
+    public XCodeBuildOutputParser replay(File testReportsDir) throws IOException, InterruptedException {
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(testReportsDir, NullOutputStream.NULL_OUTPUT_STREAM);
+        parser.setParallelTesting(parallelTesting);
+        XCodeBuildOutputParser.LineBasedFilterOutputStream output = (XCodeBuildOutputParser.LineBasedFilterOutputStream) parser.getOutputStream();
+
+        if (log.getName().endsWith(".gz")) {
+            try (InputStream in = new GZIPInputStream(new FileInputStream(log), 64 * 1024)) {
+                byte[] buffer = new byte[64 * 1024];
+                for (int read; (read = in.read(buffer)) >= 0; ) {
+                    output.parse(ByteBuffer.wrap(buffer, 0, read));
+                }
+            }
+        } else {
+            try (FileChannel channel = FileChannel.open(log.toPath(), StandardOpenOption.READ)) {
+                long size = channel.size();
+                for (long position = 0; position < size; position += CHUNK_SIZE) {
+                    output.parse(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(CHUNK_SIZE, size - position)));
+                }
+            }
+        }
+        // ends the last line should the log not end with a line break
+        output.parse(ByteBuffer.wrap(new byte[] { '\n' }));
+
+        parser.awaitTestReports();
+        return parser;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || (args.length == 3 && !"--parallel-testing".equals(args[2])) || args.length > 3) {
+            System.err.println("Usage: XCodeBuildLogReplay <xcodebuild log> <test reports directory> [--parallel-testing]");
+            System.exit(2);
+        }
+        File testReportsDir = new File(args[1]);
+        if (!testReportsDir.isDirectory() && !testReportsDir.mkdirs()) {
+            System.err.println("Cannot create " + testReportsDir);
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+        XCodeBuildLogReplay replay = new XCodeBuildLogReplay(new File(args[0]));
+        replay.setParallelTesting(args.length == 3);
+        XCodeBuildOutputParser parser = replay.replay(testReportsDir);
+        long millis = (System.nanoTime() - start) / 1000000;
+        System.out.println(parser.getTestCount() + " tests, " + parser.getFailureCount() + " failures, "
+                + parser.getErrorCount() + " errors; replayed in " + millis + " ms");
+    }
+}
@@ -30,10 +30,22 @@ import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.text.DateFormat;
 import java.text.ParseException;
+import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -41,6 +53,7 @@ import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 
+import au.com.rayh.report.StreamingTestSuite;
 import au.com.rayh.report.TestCase;
 import au.com.rayh.report.TestError;
 import au.com.rayh.report.TestFailure;
@@ -55,24 +68,89 @@ import au.com.rayh.report.TestSuite;
 
 public class XCodeBuildOutputParser {
 
-	private static DateFormat[] dateFormats = {
-		new SimpleDateFormat("yyyy-MM-dd HH:mm:ss z"),
-		new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS")
-	};
     private static Pattern START_SUITE = Pattern.compile("Test Suite '([^/].+)'.*started at\\s+(.*)");
     private static Pattern END_SUITE = Pattern.compile("Test Suite '([^/].+)'.*\\S+ at\\s+(.*).");
-    private static Pattern START_TESTCASE = Pattern.compile("Test Case '-\\[\\S+\\s+(\\S+)\\]' started.");
-    private static Pattern END_TESTCASE = Pattern.compile("Test Case '-\\[\\S+\\s+(\\S+)\\]' passed \\((.*) seconds\\).");
+    private static Pattern START_TESTCASE = Pattern.compile("Test Case '-\\[(\\S+)\\s+(\\S+)\\]' started.");
+    private static Pattern END_TESTCASE = Pattern.compile("Test Case '-\\[(\\S+)\\s+(\\S+)\\]' passed \\((.*) seconds\\).");
     private static Pattern ERROR_TESTCASE = Pattern.compile("(.*): error: -\\[(\\S+) (\\S+)\\] : (.*)");
     private static Pattern ERROR_UI_TESTCASE = Pattern.compile(".*?Assertion Failure: (.+:\\d+): (.*)");
-    private static Pattern FAILED_TESTCASE = Pattern.compile("Test Case '-\\[\\S+ (\\S+)\\]' failed \\((\\S+) seconds\\).");
+    private static Pattern FAILED_TESTCASE = Pattern.compile("Test Case '-\\[(\\S+) (\\S+)\\]' failed \\((\\S+) seconds\\).");
     private static Pattern FAILED_WITH_EXIT_CODE = Pattern.compile("failed with exit code (\\d+)");
+    private static Pattern DIAGNOSTIC = Pattern.compile("(.+?):(\\d+):(?:\\d+:)? (warning|error): (.*)");
+    private static Pattern LONG_TYPE_CHECK = Pattern.compile("(.+) took (\\d+)ms to type-check \\(limit: \\d+ms\\)");
+    private static Pattern BUILD_TARGET = Pattern.compile("=== BUILD (?:[A-Z]+ )*TARGET (.+?) OF PROJECT .*");
+    private static Pattern BUILD_STEP_TARGET = Pattern.compile("\\(in target(?:: ([^)]+)| '([^']+)' from project '[^']*')\\)$");
+    private static Pattern TIMING_SUMMARY = Pattern.compile("(\\S+) \\((\\d+) tasks?\\) \\| (\\d+(?:\\.\\d+)?) seconds");
+    /**
+     * The build steps that xcodebuild starts with a line of their own, each followed by a space.
+     */
+    private static final String[] BUILD_STEPS = {
+        "CompileSwift ", "CompileSwiftSources ", "SwiftCompile ", "SwiftEmitModule ", "SwiftDriver ",
+        "MergeSwiftModule ", "PrecompileSwiftBridgingHeader ", "CompileC ", "Ld ", "Libtool ",
+        "CreateUniversalBinary ", "GenerateDSYMFile ", "CodeSign ", "PhaseScriptExecution ",
+        "ProcessInfoPlistFile ", "ProcessProductPackaging ", "CompileStoryboard ", "LinkStoryboards ",
+        "CompileXIB ", "CompileAssetCatalog ", "CopySwiftLibs ", "CpResource ", "CopyPNGFile ",
+        "Ditto ", "Touch ", "ValidateEmbeddedBinary "
+    };
     private static Pattern TERMINATING_EXCEPTION = Pattern.compile(".*\\*\\*\\* Terminating app due to uncaught exception '(\\S+)', reason: '(.+[^\\\\])'.*");
+    private static final long HOSTNAME_TIMEOUT_SECONDS = 5;
+    private static final String UNKNOWN_HOSTNAME = "localhost";
+    private static JAXBContext jaxbContext;
     private File testReportsDir;
+    private Marshaller marshaller;
+    private final TestReportWriter reportWriter = new TestReportWriter(this);
+    private boolean streamingTestReports;
+    /**
+     * SimpleDateFormat is not thread safe, so each parser, which serves a single build, has its own.
+     */
+    private final DateFormat[] dateFormats = {
+        new SimpleDateFormat("yyyy-MM-dd HH:mm:ss z"),
+        new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS")
+    };
+    private int lastDateFormat;
     protected OutputStream captureOutputStream;
     protected int exitCode;
     protected TestSuite currentTestSuite;
     protected TestCase currentTestCase;
+    private boolean parallelTesting;
+    /**
+     * With parallel testing the lines of several test runners interleave, so every suite and test
+     * case that has started and not yet finished is kept here instead of in the current ones, by
+     * suite name and by class and test name.
+     */
+    private final Map<String, TestSuite> runningTestSuites = new HashMap<>();
+    private final Map<String, TestCase> runningTestCases = new HashMap<>();
+    private String lastStartedTestCase;
+    private int testCount;
+    private int failureCount;
+    private int errorCount;
+    private final Diagnostics diagnostics = new Diagnostics();
+    /**
+     * xcodebuild does not print how long its steps take, so each step is timed from its line to the
+     * line of the next one. When the steps of several targets run at the same time this is only
+     * an approximation; the timing summary of xcodebuild is exact.
+     */
+    private final BuildTimings buildTimings = new BuildTimings();
+    private final TypeCheckHotspots typeCheckHotspots = new TypeCheckHotspots();
+    private final ConsoleIndex consoleIndex = new ConsoleIndex();
+    private final XCodeTestResults testResults = new XCodeTestResults();
+    private boolean writingTestReports = true;
+    private boolean collectingTestResults;
+    /**
+     * Where the line being handled starts and ends in the output of xcodebuild.
+     */
+    private long lineStart;
+    private long lineEnd;
+    private String buildTarget;
+    private String buildStep;
+    private String buildStepTarget;
+    private long buildStepStarted;
+    /**
+     * Looks up the hostname recorded in the reports while xcodebuild gets going, so that a slow
+     * lookup does not hold up reading its output.
+     */
+    protected Future<String> hostnameLookup;
+    private String hostname;
 
     protected XCodeBuildOutputParser() {
         super();
@@ -87,10 +165,56 @@ public class XCodeBuildOutputParser {
         this();
         this.captureOutputStream = new LineBasedFilterOutputStream(log);
         this.testReportsDir = workspace;
+        this.hostnameLookup = lookUpLocalHostname();
     }
 
-    public class LineBasedFilterOutputStream extends FilterOutputStream {
-        StringBuilder buffer = new StringBuilder();
+    private static Future<String> lookUpLocalHostname() {
+        FutureTask<String> lookup = new FutureTask<>(new Callable<String>() {
+            public String call() throws UnknownHostException {
+                return InetAddress.getLocalHost().getHostName();
+            }
+        });
+        Thread thread = new Thread(lookup, "Xcode report hostname lookup");
+        thread.setDaemon(true);
+        thread.start();
+        return lookup;
+    }
+
+    /**
+     * Waits for the lookup at most once per build; if it fails or takes too long, every report of the
+     * build gets a placeholder instead.
+     */
+    private String getHostname() throws InterruptedException {
+        if(hostname == null) {
+            if(hostnameLookup == null) {
+                hostnameLookup = lookUpLocalHostname();
+            }
+            try {
+                hostname = hostnameLookup.get(HOSTNAME_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (ExecutionException | TimeoutException e) {
+                hostnameLookup.cancel(true);
+                hostname = UNKNOWN_HOSTNAME;
+            }
+        }
+        return hostname;
+    }
+
+    /**
+     * Passes everything written to it straight through to the console and decodes it as UTF-8 into
+     * lines. Lines that cannot match any pattern are dropped before a String is made of them, the
+     * others are handed to {@link #handleLine(String, LineKind)}.
+     */
+    public class LineBasedFilterOutputStream extends FilterOutputStream implements LineDecoder.LineHandler {
+        private final LineDecoder decoder = new LineDecoder(this);
+        private final ByteBuffer singleByte = ByteBuffer.allocate(1);
+        /**
+         * The bytes being decoded, and the index in them and offset in the output of the first byte
+         * not yet known to be part of a line. Every line break of the bytes ends a line while they are
+         * decoded, so finding the next one gives the offset where the line ends.
+         */
+        private ByteBuffer bytes;
+        private int scanned;
+        private long offset;
 
         public LineBasedFilterOutputStream(OutputStream log) {
             super(log);
@@ -98,41 +222,80 @@ public class XCodeBuildOutputParser {
 
         @Override
         public void write(int b) throws IOException {
-            super.write(b);
-            if((char)b == '\n') {
+            out.write(b);
+            singleByte.clear();
+            singleByte.put((byte)b);
+            singleByte.flip();
+            decode(singleByte);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            decode(ByteBuffer.wrap(b, off, len));
+        }
+
+        /**
+         * Parses output that was saved earlier without passing it to the console.
+         */
+        public void parse(ByteBuffer bytes) throws IOException {
+            decode(bytes);
+        }
+
+        private void decode(ByteBuffer bytes) throws IOException {
+            this.bytes = bytes;
+            scanned = bytes.position();
+            int limit = bytes.limit();
+            decoder.write(bytes);
+            offset += limit - scanned;
+            this.bytes = null;
+        }
+
+        public void lineEnded(CharSequence line) throws IOException {
+            while(bytes.get(scanned++) != '\n') {
+                offset++;
+            }
+            lineEnd = ++offset;
+            try {
+                LineKind kind = classify(line);
+                if(kind == LineKind.OTHER) {
+                    return;
+                }
                 try {
-                    handleLine(buffer.toString());
-                    buffer = new StringBuilder();
+                    handleLine(line.toString(), kind);
                 } catch(Exception e) {  // Very fugly
-                    throw new IOException(e);
+                    throw lineFailed(e);
                 }
-            } else {
-                buffer.append((char)b);
+            } finally {
+                lineStart = lineEnd;
             }
         }
+
+        /**
+         * Called when {@link #handleLine(String, LineKind)} fails; returns the exception to throw to the writer.
+         */
+        protected IOException lineFailed(Exception e) {
+            return new IOException(e);
+        }
     }
 
+	/**
+	 * Tries the format that matched last time first, as a log uses the same one throughout, and
+	 * parses with a ParsePosition so that trying a format that does not match costs no exception.
+	 */
 	private Date parseDate(String text) throws ParseException {
-		Date date;
-		ParseException parseException;
-
-		date = null;
-		parseException = null;
-
-		for (DateFormat dateFormat : dateFormats) {
-			try {
-				date = dateFormat.parse(text);
-				break;
-			} catch (ParseException exception) {
-				parseException = exception;
+		ParsePosition position = new ParsePosition(0);
+		for (int i = 0; i < dateFormats.length; i++) {
+			int index = (lastDateFormat + i) % dateFormats.length;
+			position.setIndex(0);
+			position.setErrorIndex(-1);
+			Date date = dateFormats[index].parse(text, position);
+			if (date != null) {
+				lastDateFormat = index;
+				return date;
 			}
 		}
-
-		if ((date == null) && (parseException != null)) {
-			throw parseException;
-		}
-
-		return date;
+		throw new ParseException("Unparseable date: \"" + text + "\"", position.getErrorIndex());
 	}
 
 	private void requireTestSuite() {
@@ -156,129 +319,683 @@ public class XCodeBuildOutputParser {
         }
     }
 
-    private void writeTestReport() throws IOException, InterruptedException,
-            JAXBException {
-        try (OutputStream testReportOutputStream = outputForSuite()) {
-            JAXBContext jaxbContext = JAXBContext.newInstance(TestSuite.class);
-            Marshaller marshaller = jaxbContext.createMarshaller();
-            marshaller.marshal(currentTestSuite, testReportOutputStream);
+    private void submitTestReport(TestSuite suite) throws IOException, InterruptedException {
+        testCount += suite.getTests();
+        failureCount += suite.getFailures();
+        errorCount += suite.getErrors();
+        if(collectingTestResults) {
+            testResults.addSuite(suite);
+        }
+        if(writingTestReports) {
+            reportWriter.submit(suite);
+        } else {
+            discardTestSuite(suite);
+        }
+    }
+
+    /**
+     * Writes a batch of finished suites. Called on a {@link TestReportWriter} thread, one batch at a time.
+     */
+    protected void writeTestReports(List<TestSuite> suites) throws IOException, InterruptedException, JAXBException {
+        for(TestSuite suite : suites) {
+            try (OutputStream testReportOutputStream = outputForSuite(suite)) {
+                writeTestReport(suite, testReportOutputStream);
+            }
+        }
+    }
+
+    protected void writeTestReport(TestSuite suite, OutputStream out) throws IOException, JAXBException {
+        if(suite instanceof StreamingTestSuite) {
+            try (StreamingTestSuite streamingSuite = (StreamingTestSuite) suite) {
+                streamingSuite.writeReport(out);
+            }
+        } else {
+            marshal(suite, out);
+        }
+    }
+
+    protected void marshal(TestSuite suite, OutputStream out) throws JAXBException {
+        getMarshaller().marshal(suite, out);
+    }
+
+    /**
+     * Called with the first failure to write a report; the failure is also thrown by {@link #awaitTestReports()}.
+     */
+    protected void testReportsFailed(Exception e) {
+    }
+
+    /**
+     * The JAXBContext is thread safe and expensive to build, so it is shared by every parser in the JVM.
+     */
+    static synchronized JAXBContext getJAXBContext() throws JAXBException {
+        if(jaxbContext == null) {
+            jaxbContext = JAXBContext.newInstance(TestSuite.class);
+        }
+        return jaxbContext;
+    }
+
+    /**
+     * A Marshaller is not thread safe, so each parser, which serves a single build, has its own.
+     */
+    private Marshaller getMarshaller() throws JAXBException {
+        if(marshaller == null) {
+            marshaller = getJAXBContext().createMarshaller();
         }
+        return marshaller;
     }
 
-    protected OutputStream outputForSuite() throws IOException,
+    protected OutputStream outputForSuite(TestSuite suite) throws IOException,
             InterruptedException {
-        return new FileOutputStream(new File(testReportsDir, "TEST-" + currentTestSuite.getName() + ".xml"));
+        return new FileOutputStream(new File(testReportsDir, reportFileName(suite)));
+    }
+
+    protected static String reportFileName(TestSuite suite) {
+        return "TEST-" + suite.getName() + ".xml";
+    }
+
+    /**
+     * The kinds of lines {@link #handleLine(String)} acts upon, recognised by the literal text each
+     * pattern requires so that the regular expressions only run on lines that can match them.
+     */
+    enum LineKind {
+        TEST_SUITE, TEST_CASE, TEST_CASE_ERROR, UI_TEST_ASSERTION_FAILURE, TERMINATING_EXCEPTION, FAILED_WITH_EXIT_CODE, FAILED, BUILD_TARGET, BUILD_STEP, BUILD_RESULT, TIMING_SUMMARY, TYPE_CHECK_TIME, DIAGNOSTIC, OTHER
+    }
+
+    static LineKind classify(CharSequence line) {
+        if(line.length() == 0) {
+            return LineKind.OTHER;
+        }
+        char first = line.charAt(0);
+        // most of a log is the indented command lines of build steps, of which only the activities of
+        // UI tests matter, so they are told apart before anything scans the whole line
+        if(first == ' ' || first == '\t') {
+            return isTestActivity(line) && contains(line, "Assertion Failure: ") ? LineKind.UI_TEST_ASSERTION_FAILURE : LineKind.OTHER;
+        }
+        if(startsWith(line, "Test Suite '")) {
+            return LineKind.TEST_SUITE;
+        }
+        if(startsWith(line, "Test Case '-[")) {
+            return LineKind.TEST_CASE;
+        }
+        if(first >= 'A' && first <= 'Z') {
+            for(String step : BUILD_STEPS) {
+                if(startsWith(line, step)) {
+                    // the lines of the timing summary start with the name of a build step too
+                    return isTimingSummary(line) ? LineKind.TIMING_SUMMARY : LineKind.BUILD_STEP;
+                }
+            }
+        }
+        int error = indexOf(line, ": error: ");
+        if(error >= 0 && regionMatches(line, error + ": error: ".length(), "-[")) {
+            return LineKind.TEST_CASE_ERROR;
+        }
+        if(contains(line, "Assertion Failure: ")) {
+            return LineKind.UI_TEST_ASSERTION_FAILURE;
+        }
+        if(contains(line, "*** Terminating app due to uncaught exception '")) {
+            return LineKind.TERMINATING_EXCEPTION;
+        }
+        if(startsWith(line, "failed with exit code ")) {
+            return LineKind.FAILED_WITH_EXIT_CODE;
+        }
+        if("BUILD FAILED".contentEquals(line) || "** TEST FAILED **".contentEquals(line)) {
+            return LineKind.FAILED;
+        }
+        if(isTimingSummary(line)) {
+            return LineKind.TIMING_SUMMARY;
+        }
+        if(startsWith(line, "=== BUILD ")) {
+            return LineKind.BUILD_TARGET;
+        }
+        if(startsWith(line, "** ")) {
+            return LineKind.BUILD_RESULT;
+        }
+        if(first >= '0' && first <= '9' && contains(line, "ms\t")) {
+            return LineKind.TYPE_CHECK_TIME;
+        }
+        if(error >= 0 || contains(line, ": warning: ")) {
+            return LineKind.DIAGNOSTIC;
+        }
+        return LineKind.OTHER;
+    }
+
+    /**
+     * Whether an indented line is one of the activities xcodebuild prints while a UI test runs,
+     * such as {@code     t =     4.30s Assertion Failure: ...}.
+     */
+    private static boolean isTestActivity(CharSequence line) {
+        int i = 0;
+        while(i < line.length() && (line.charAt(i) == ' ' || line.charAt(i) == '\t')) {
+            i++;
+        }
+        return regionMatches(line, i, "t = ");
+    }
+
+    /**
+     * Whether the line is one of the timing summary, {@code CompileC (12 tasks) | 3.456 seconds}, whose
+     * first word is followed by the count in parentheses.
+     */
+    private static boolean isTimingSummary(CharSequence line) {
+        int space = indexOf(line, " ");
+        return space > 0 && regionMatches(line, space, " (") && (contains(line, " task) | ") || contains(line, " tasks) | "));
+    }
+
+    static boolean startsWith(CharSequence line, String prefix) {
+        return regionMatches(line, 0, prefix);
+    }
+
+    static boolean contains(CharSequence line, String text) {
+        return indexOf(line, text) >= 0;
+    }
+
+    static int indexOf(CharSequence line, String text) {
+        char first = text.charAt(0);
+        for(int i = 0, last = line.length() - text.length(); i <= last; i++) {
+            if(line.charAt(i) == first && regionMatches(line, i, text)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(CharSequence line, int offset, String text) {
+        if(offset + text.length() > line.length()) {
+            return false;
+        }
+        for(int i = 0; i < text.length(); i++) {
+            if(line.charAt(offset + i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     protected void handleLine(String line) throws ParseException, IOException, InterruptedException, JAXBException {
+        handleLine(line, classify(line));
+    }
+
+    /**
+     * Handles a line already classified, as the output stream does before it makes a String of it.
+     */
+    void handleLine(String line, LineKind kind) throws ParseException, IOException, InterruptedException, JAXBException {
+        switch(kind) {
+            case TEST_SUITE:
+                endBuildStep();
+                handleTestSuiteLine(line);
+                break;
+            case TEST_CASE:
+                handleTestCaseLine(line);
+                break;
+            case TEST_CASE_ERROR:
+                handleTestCaseErrorLine(line);
+                break;
+            case UI_TEST_ASSERTION_FAILURE:
+                handleUITestAssertionFailureLine(line);
+                break;
+            case TERMINATING_EXCEPTION:
+                handleTerminatingExceptionLine(line);
+                break;
+            case FAILED_WITH_EXIT_CODE:
+                Matcher m = FAILED_WITH_EXIT_CODE.matcher(line);
+                if(m.matches()) {
+                    exitCode = Integer.parseInt(m.group(1));
+                }
+                break;
+            case FAILED:
+                endBuildStep();
+                exitCode = -1;
+                break;
+            case BUILD_TARGET:
+                handleBuildTargetLine(line);
+                break;
+            case BUILD_STEP:
+                handleBuildStepLine(line);
+                break;
+            case BUILD_RESULT:
+                endBuildStep();
+                break;
+            case TIMING_SUMMARY:
+                handleTimingSummaryLine(line);
+                break;
+            case TYPE_CHECK_TIME:
+                handleTypeCheckTimeLine(line);
+                break;
+            case DIAGNOSTIC:
+                handleDiagnosticLine(line);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void handleBuildTargetLine(String line) {
+        endBuildStep();
+        Matcher m = BUILD_TARGET.matcher(line);
+        if(m.matches()) {
+            buildTarget = m.group(1);
+        }
+    }
+
+    private void handleBuildStepLine(String line) {
+        long now = nanoTime();
+        endBuildStep(now);
+        buildStep = line.substring(0, line.indexOf(' '));
+        Matcher m = BUILD_STEP_TARGET.matcher(line);
+        if(m.find()) {
+            buildStepTarget = m.group(1) != null ? m.group(1) : m.group(2);
+        } else {
+            buildStepTarget = buildTarget != null ? buildTarget : "";
+        }
+        buildStepStarted = now;
+    }
+
+    private void endBuildStep() {
+        if(buildStep != null) {
+            endBuildStep(nanoTime());
+        }
+    }
+
+    private void endBuildStep(long now) {
+        if(buildStep != null) {
+            buildTimings.addStep(buildStepTarget, buildStep, now - buildStepStarted);
+            buildStep = null;
+        }
+    }
+
+    private void handleTimingSummaryLine(String line) {
+        Matcher m = TIMING_SUMMARY.matcher(line);
+        if(m.matches()) {
+            long nanos = Math.round(Double.parseDouble(m.group(3)) * 1000000000d);
+            buildTimings.addSummary(m.group(1), Integer.parseInt(m.group(2)), nanos);
+        }
+    }
+
+    /**
+     * The clock the build steps are timed with.
+     */
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    private void handleDiagnosticLine(String line) {
+        Matcher m = DIAGNOSTIC.matcher(line);
+        if(m.matches()) {
+            int lineNumber = Integer.parseInt(m.group(2));
+            diagnostics.add(m.group(1), lineNumber, m.group(3), m.group(4));
+
+            Matcher longTypeCheck = LONG_TYPE_CHECK.matcher(m.group(4));
+            if(longTypeCheck.matches()) {
+                typeCheckHotspots.add(m.group(1), lineNumber, longTypeCheck.group(1), Integer.parseInt(longTypeCheck.group(2)));
+            }
+        }
+    }
+
+    /**
+     * Handles a line like {@code 12.3ms<tab>/src/Deck.swift:42:10<tab>instance method shuffle()} printed by
+     * {@code -debug-time-function-bodies}, or the same without a description by
+     * {@code -debug-time-expression-type-checking}. There can be millions of them, so those too fast
+     * to be kept are dropped before anything else is taken from the line.
+     */
+    private void handleTypeCheckTimeLine(String line) {
+        int end = line.indexOf("ms\t");
+        double millis;
+        try {
+            millis = Double.parseDouble(line.substring(0, end));
+        } catch(NumberFormatException e) {
+            return;
+        }
+        if(!typeCheckHotspots.isHotspot(millis)) {
+            return;
+        }
+
+        int start = end + 3;
+        int tab = line.indexOf('\t', start);
+        String location = tab < 0 ? line.substring(start) : line.substring(start, tab);
+        String description = tab < 0 ? "expression" : line.substring(tab + 1);
+        String file = location;
+        int lineNumber = 0;
+        int column = location.lastIndexOf(':');
+        int row = column > 0 ? location.lastIndexOf(':', column - 1) : -1;
+        if(row > 0) {
+            try {
+                lineNumber = Integer.parseInt(location.substring(row + 1, column));
+                file = location.substring(0, row);
+            } catch(NumberFormatException e) {
+                // not a source location, such as <invalid loc>
+            }
+        }
+        typeCheckHotspots.add(file, lineNumber, description, millis);
+    }
+
+    private void handleTestSuiteLine(String line) throws ParseException, IOException, InterruptedException {
         Matcher m = START_SUITE.matcher(line);
         if(m.matches()) {
-            currentTestSuite = new TestSuite(InetAddress.getLocalHost().getHostName(), m.group(1), parseDate(m.group(2)));
+            consoleIndex.suiteStarted(m.group(1), lineStart);
+            TestSuite suite = createTestSuite(m.group(1), parseDate(m.group(2)));
+            if(parallelTesting) {
+                discardTestSuite(runningTestSuites.put(suite.getName(), suite));
+            } else {
+                discardTestSuite(currentTestSuite);
+                currentTestSuite = suite;
+            }
             return;
         }
 
         m = END_SUITE.matcher(line);
         if(m.matches()) {
+            consoleIndex.suiteEnded(m.group(1), lineEnd);
+            if(parallelTesting) {
+                TestSuite suite = runningTestSuites.remove(m.group(1));
+                if(suite == null) return;
+                // suites that only group others, such as the one of all tests, have no report of their own
+                if(suite.getTests() == 0) {
+                    discardTestSuite(suite);
+                    return;
+                }
+                suite.setEndTime(parseDate(m.group(2)));
+                submitTestReport(suite);
+                return;
+            }
+
             if(currentTestSuite==null) return; // if there is no current suite, do nothing
 
             currentTestSuite.setEndTime(parseDate(m.group(2)));
-            writeTestReport();
+            submitTestReport(currentTestSuite);
 
             currentTestSuite = null;
-            return;
         }
+    }
+
+    private TestSuite createTestSuite(String name, Date startTime) throws IOException, InterruptedException {
+        if(streamingTestReports && writingTestReports) {
+            return new StreamingTestSuite(getHostname(), name, startTime);
+        }
+        return new TestSuite(getHostname(), name, startTime);
+    }
+
+    /**
+     * Drops a suite that is being replaced before it ended, such as the suite of all tests when the
+     * first suite of a test bundle starts, releasing what a streaming suite holds on to.
+     */
+    static void discardTestSuite(TestSuite suite) throws IOException {
+        if(suite instanceof StreamingTestSuite) {
+            ((StreamingTestSuite) suite).close();
+        }
+    }
 
-        m = START_TESTCASE.matcher(line);
+    /**
+     * The running suite of a test class, which is named without the module the class may be qualified with.
+     */
+    private TestSuite runningTestSuite(String className) {
+        return runningTestSuites.get(className.substring(className.lastIndexOf('.') + 1));
+    }
+
+    private static String testCaseKey(String className, String name) {
+        return className + " " + name;
+    }
+
+    private TestCase requireRunningTestCase(String className, String name) {
+        TestCase testCase = runningTestCases.get(testCaseKey(className, name));
+        if(testCase == null) {
+            throw new RuntimeException("Log statements out of sync: test case '" + className + " " + name + "' was not running");
+        }
+        return testCase;
+    }
+
+    private void handleTestCaseLine(String line) throws IOException {
+        Matcher m = START_TESTCASE.matcher(line);
         if(m.matches()) {
-            currentTestCase = new TestCase(currentTestSuite.getName(), m.group(1));
+            consoleIndex.testCaseStarted(m.group(1), m.group(2), lineStart);
+            if(parallelTesting) {
+                TestSuite suite = runningTestSuite(m.group(1));
+                String key = testCaseKey(m.group(1), m.group(2));
+                runningTestCases.put(key, new TestCase(suite != null ? suite.getName() : m.group(1), m.group(2)));
+                lastStartedTestCase = key;
+            } else {
+                currentTestCase = new TestCase(currentTestSuite.getName(), m.group(2));
+            }
             return;
         }
 
         m = END_TESTCASE.matcher(line);
         if(m.matches()) {
-            requireTestSuite();
-            requireTestCase(m.group(1));
-
-            currentTestCase.setTime(Float.valueOf(m.group(2)));
-            currentTestSuite.getTestCases().add(currentTestCase);
-            currentTestSuite.addTest();
-            currentTestCase = null;
+            finishTestCase(m.group(1), m.group(2), m.group(3), false);
             return;
         }
 
-        m = ERROR_TESTCASE.matcher(line);
+        m = FAILED_TESTCASE.matcher(line);
         if(m.matches()) {
+            finishTestCase(m.group(1), m.group(2), m.group(3), true);
+        }
+    }
+
+    private void finishTestCase(String className, String name, String time, boolean failed) throws IOException {
+        consoleIndex.testCaseEnded(className, name, lineEnd, failed);
+        TestSuite suite;
+        TestCase testCase;
+        if(parallelTesting) {
+            testCase = requireRunningTestCase(className, name);
+            suite = runningTestSuite(className);
+            if(suite == null) {
+                throw new RuntimeException("Log statements out of sync: test suite of '" + className + "' was not running");
+            }
+            runningTestCases.remove(testCaseKey(className, name));
+        } else {
+            requireTestSuite();
+            requireTestCase(name);
+            suite = currentTestSuite;
+            testCase = currentTestCase;
+            currentTestCase = null;
+        }
+
+        testCase.setTime(Float.valueOf(time));
+        suite.addTestCase(testCase);
+        suite.addTest();
+        if(failed) {
+            suite.addFailure();
+            if(collectingTestResults) {
+                testResults.addFailedTestCase(suite.getName(), testCase);
+            }
+        }
+    }
 
+    private void handleTestCaseErrorLine(String line) {
+        Matcher m = ERROR_TESTCASE.matcher(line);
+        if(m.matches()) {
             String errorLocation = m.group(1);
             String testSuite = m.group(2);
             String testCase = m.group(3);
             String errorMessage = m.group(4);
 
+            TestFailure failure = new TestFailure(errorMessage, errorLocation);
+            if(parallelTesting) {
+                requireRunningTestCase(testSuite, testCase).getFailures().add(failure);
+                return;
+            }
+
             requireTestSuite(testSuite);
             requireTestCase(testCase);
 
-            TestFailure failure = new TestFailure(errorMessage, errorLocation);
             currentTestCase.getFailures().add(failure);
-            return;
         }
-	
-        m = ERROR_UI_TESTCASE.matcher(line);
+    }
+
+    private void handleUITestAssertionFailureLine(String line) {
+        Matcher m = ERROR_UI_TESTCASE.matcher(line);
         if(m.matches()) {
             String errorLocation = m.group(1);
             String errorMessage = m.group(2);
 
             TestFailure failure = new TestFailure(errorMessage, errorLocation);
-            currentTestCase.getFailures().add(failure);
-            return;
+            // the line does not name its test, with parallel testing it is put down to the last one started
+            TestCase testCase = parallelTesting ? runningTestCases.get(lastStartedTestCase) : currentTestCase;
+            if(testCase != null) {
+                testCase.getFailures().add(failure);
+            }
         }
+    }
 
-        m = FAILED_TESTCASE.matcher(line);
+    private void handleTerminatingExceptionLine(String line) throws IOException, InterruptedException {
+        Matcher m = TERMINATING_EXCEPTION.matcher(line);
         if(m.matches()) {
-            requireTestSuite();
-            requireTestCase(m.group(1));
-            currentTestSuite.addTest();
-            currentTestSuite.addFailure();
-            currentTestCase.setTime(Float.valueOf(m.group(2)));
-            currentTestSuite.getTestCases().add(currentTestCase);
-            currentTestCase = null;
-            return;
-        }
+            exitCode = -1;
 
-        m = FAILED_WITH_EXIT_CODE.matcher(line);
-        if(m.matches()) {
-            exitCode = Integer.parseInt(m.group(1));
-            return;
-        }
+            TestError error = new TestError(m.group(2), m.group(1));
+            if(parallelTesting) {
+                handleParallelTerminatingException(error);
+                return;
+            }
 
-        if(line.matches("BUILD FAILED") || line.matches("\\*\\* TEST FAILED \\*\\*")) {
-            exitCode = -1;
-        }
-        
-        m = TERMINATING_EXCEPTION.matcher(line);
-        if(m.matches()) {
-            exitCode = -1;
-            
             requireTestSuite();
             if (currentTestCase != null) {
-                TestError error = new TestError(m.group(2), m.group(1));
                 currentTestCase.getErrors().add(error);
-                
-                currentTestSuite.getTestCases().add(currentTestCase);
+
+                currentTestSuite.addTestCase(currentTestCase);
                 currentTestSuite.addTest();
                 currentTestSuite.addError();
-                
+                if(collectingTestResults) {
+                    testResults.addFailedTestCase(currentTestSuite.getName(), currentTestCase);
+                }
+
                 currentTestCase = null;
             }
-            writeTestReport();
+            submitTestReport(currentTestSuite);
             currentTestSuite = null;
         }
     }
 
+    /**
+     * A crash only ends the test runner it happened in, which is taken to be the one that started a
+     * test case last; the suites and test cases of the other runners carry on.
+     */
+    private void handleParallelTerminatingException(TestError error) throws IOException, InterruptedException {
+        if(lastStartedTestCase == null) {
+            return;
+        }
+        String className = lastStartedTestCase.substring(0, lastStartedTestCase.indexOf(' '));
+        TestCase testCase = runningTestCases.remove(lastStartedTestCase);
+        lastStartedTestCase = null;
+
+        TestSuite suite = runningTestSuite(className);
+        if(suite == null) {
+            return;
+        }
+        runningTestSuites.remove(suite.getName());
+        if(testCase != null) {
+            testCase.getErrors().add(error);
+            suite.addTestCase(testCase);
+            suite.addTest();
+            suite.addError();
+            if(collectingTestResults) {
+                testResults.addFailedTestCase(suite.getName(), testCase);
+            }
+        }
+        submitTestReport(suite);
+    }
+
     public OutputStream getOutputStream() {
         return captureOutputStream;
     }
 
+    /**
+     * Times the last build step and waits until the reports of every finished suite have been written.
+     * @throws IOException if any of them could not be written
+     */
+    public void awaitTestReports() throws IOException, InterruptedException {
+        endBuildStep();
+        discardTestSuite(currentTestSuite);
+        currentTestSuite = null;
+        for(TestSuite suite : runningTestSuites.values()) {
+            discardTestSuite(suite);
+        }
+        runningTestSuites.clear();
+        reportWriter.await();
+    }
+
+    /**
+     * Whether the lines of several test runners may interleave, as they do when xcodebuild runs
+     * with {@code -parallel-testing-enabled YES}.
+     */
+    public void setParallelTesting(boolean parallelTesting) {
+        this.parallelTesting = parallelTesting;
+    }
+
+    /**
+     * Whether to write each test case out as soon as it finishes rather than keeping whole suites
+     * in memory until they end, for test bundles with very many test cases.
+     */
+    public void setStreamingTestReports(boolean streamingTestReports) {
+        this.streamingTestReports = streamingTestReports;
+    }
+
+    /**
+     * Whether to write the JUnit reports of the suites; when not, the results are only collected in
+     * {@link #getTestResults()}, if at all.
+     */
+    public void setWritingTestReports(boolean writingTestReports) {
+        this.writingTestReports = writingTestReports;
+    }
+
+    /**
+     * Whether to keep the totals of the suites and the messages of the failed test cases for
+     * {@link #getTestResults()}. Off by default, as the messages can be large and are only wanted
+     * to publish the results to the build.
+     */
+    public void setCollectingTestResults(boolean collectingTestResults) {
+        this.collectingTestResults = collectingTestResults;
+    }
+
     public int getExitCode() {
         return exitCode;
     }
+
+    /**
+     * The number of tests in the suites reported so far.
+     */
+    public int getTestCount() {
+        return testCount;
+    }
+
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * The compiler warnings and errors seen so far, each counted once.
+     */
+    public Diagnostics getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * The time taken by the build steps seen so far, by target and phase.
+     */
+    public BuildTimings getBuildTimings() {
+        return buildTimings;
+    }
+
+    /**
+     * The functions and expressions seen so far that took longest to type-check.
+     */
+    public TypeCheckHotspots getTypeCheckHotspots() {
+        return typeCheckHotspots;
+    }
+
+    /**
+     * Where the suites and test cases seen so far start and end in the output of xcodebuild.
+     */
+    public ConsoleIndex getConsoleIndex() {
+        return consoleIndex;
+    }
+
+    /**
+     * The totals of the suites and the failed test cases seen so far, or null if they are not collected.
+     */
+    public XCodeTestResults getTestResults() {
+        return collectingTestResults ? testResults : null;
+    }
 }
@@ -32,9 +32,13 @@ import hudson.EnvVars;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
+import hudson.Util;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.BuildListener;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.tasks.BuildStepDescriptor;
@@ -46,18 +50,24 @@ import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.plugins.tokenmacro.MacroEvaluationException;
 import org.jenkinsci.plugins.tokenmacro.TokenMacro;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 
 import javax.inject.Inject;
-import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileFilter;
 import java.io.IOException;
 import java.io.ObjectStreamException;
+import java.io.Serializable;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.Collection;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * @author Ray Hilton
@@ -65,7 +75,16 @@ import java.util.concurrent.TimeUnit;
 @SuppressFBWarnings("NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE")
 public class XCodeBuilder extends Builder implements SimpleBuildStep {
 
-    private static final int SIGTERM = 143;
+    /**
+     * How long the probes run before the build together may take, in seconds.
+     */
+    private static final int PREFLIGHT_TIMEOUT = 60;
+
+    /**
+     * How long xcodebuild -list may take, in seconds; the build goes on without the schemes if it
+     * takes longer.
+     */
+    private static final int LIST_TIMEOUT = 10;
 
     private static final String MANIFEST_PLIST_TEMPLATE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><!DOCTYPE plist PUBLIC \"-//Apple//DTD PLIST 1.0//EN\" \"http://www.apple.com/DTDs/PropertyList-1.0.dtd\">"
             + "<plist version=\"1.0\"><dict><key>items</key><array><dict><key>assets</key><array><dict><key>kind</key><string>software-package</string><key>url</key><string>${IPA_URL_BASE}/${IPA_NAME}</string></dict></array>"
@@ -203,6 +222,26 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
      * @since 1.5
      */
     public final String ipaManifestPlistUrl;
+    /**
+     * @since 2.0.1
+     */
+    public Boolean streamTestReports;
+    /**
+     * @since 2.0.1
+     */
+    public Boolean compactConsoleLog;
+    /**
+     * @since 2.0.1
+     */
+    public Boolean keepRawLog;
+    /**
+     * @since 2.0.1
+     */
+    public Boolean publishTestResults;
+    /**
+     * @since 2.0.1
+     */
+    public Boolean skipTestReportFiles;
 
     // Fields in config.jelly must match the parameter names in the "DataBoundConstructor"
     @DataBoundConstructor
@@ -266,6 +305,46 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
                 bundleIDInfoPlistPath, ipaManifestPlistUrl, interpretTargetAsRegEx, "ad-hoc");
     }
 
+    /**
+     * @since 2.0.1
+     */
+    @DataBoundSetter
+    public void setStreamTestReports(Boolean streamTestReports) {
+        this.streamTestReports = streamTestReports;
+    }
+
+    /**
+     * @since 2.0.1
+     */
+    @DataBoundSetter
+    public void setCompactConsoleLog(Boolean compactConsoleLog) {
+        this.compactConsoleLog = compactConsoleLog;
+    }
+
+    /**
+     * @since 2.0.1
+     */
+    @DataBoundSetter
+    public void setKeepRawLog(Boolean keepRawLog) {
+        this.keepRawLog = keepRawLog;
+    }
+
+    /**
+     * @since 2.0.1
+     */
+    @DataBoundSetter
+    public void setPublishTestResults(Boolean publishTestResults) {
+        this.publishTestResults = publishTestResults;
+    }
+
+    /**
+     * @since 2.0.1
+     */
+    @DataBoundSetter
+    public void setSkipTestReportFiles(Boolean skipTestReportFiles) {
+        this.skipTestReportFiles = skipTestReportFiles;
+    }
+
     @SuppressWarnings("unused")
     private Object readResolve() throws ObjectStreamException {
         if (provideApplicationVersion == null) {
@@ -290,12 +369,17 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
     @SuppressFBWarnings("DM_DEFAULT_ENCODING")
     private boolean _perform(Run<?,?> build, FilePath projectRoot, Launcher launcher, EnvVars envs, TaskListener listener) throws InterruptedException, IOException {
 
-        // check that the configured tools exist
-        if (!new FilePath(projectRoot.getChannel(), getGlobalConfiguration().getXcodebuildPath()).exists()) {
+        // check that the configured tools exist, and whether they changed since the last build on this node
+        ToolchainCache.Stamp toolchainStamp = projectRoot.act(new ToolchainCache.StampCallable(getGlobalConfiguration().getXcodebuildPath(),
+                getGlobalConfiguration().getAgvtoolPath(), getGlobalConfiguration().getXcrunPath(), envs.get("DEVELOPER_DIR")));
+        Computer computer = projectRoot.toComputer();
+        String node = computer != null ? computer.getName() : null;
+        ToolchainCache.Toolchain toolchain = node != null ? ToolchainCache.get(node, toolchainStamp) : null;
+        if (!toolchainStamp.isXcodebuildFound()) {
             listener.fatalError(Messages.XCodeBuilder_xcodebuildNotFound(getGlobalConfiguration().getXcodebuildPath()));
             return false;
         }
-        if (!new FilePath(projectRoot.getChannel(), getGlobalConfiguration().getAgvtoolPath()).exists()) {
+        if (!toolchainStamp.isAgvtoolFound()) {
             listener.fatalError(Messages.XCodeBuilder_avgtoolNotFound(getGlobalConfiguration().getAgvtoolPath()));
             return false;
         }
@@ -373,37 +457,132 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
             buildDirectory = projectRoot.child("build").child(configuration + "-" + buildPlatform);
         }
 
-        // XCode Version
-        int returnCode = launcher.launch().envs(envs).cmds(getGlobalConfiguration().getXcodebuildPath(), "-version").stdout(listener).pwd(projectRoot).join();
-        if (returnCode > 0) {
-            listener.fatalError(Messages.XCodeBuilder_xcodeVersionNotFound());
-            return false; // We fail the build if XCode isn't deployed
+        int returnCode;
+        if (unlockKeychain != null && unlockKeychain) {
+            // Let's unlock the keychain
+            Keychain keychain = getKeychain();
+            if(keychain == null)
+            {
+                listener.fatalError(Messages.XCodeBuilder_keychainNotConfigured());
+                return false;
+            }
+            String keychainPath = envs.expand(keychain.getKeychainPath());
+            String keychainPwd = envs.expand(keychain.getKeychainPassword());
+            launcher.launch().envs(envs).cmds("/usr/bin/security", "list-keychains", "-s", keychainPath).stdout(listener).pwd(projectRoot).join();
+            launcher.launch().envs(envs).cmds("/usr/bin/security", "default-keychain", "-d", "user", "-s", keychainPath).stdout(listener).pwd(projectRoot).join();
+            if (StringUtils.isEmpty(keychainPwd))
+                returnCode = launcher.launch().envs(envs).cmds("/usr/bin/security", "unlock-keychain", keychainPath).stdout(listener).pwd(projectRoot).join();
+            else
+                returnCode = launcher.launch().envs(envs).cmds("/usr/bin/security", "unlock-keychain", "-p", keychainPwd, keychainPath).masks(false, false, false, true, false).stdout(listener).pwd(projectRoot).join();
+
+            if (returnCode > 0) {
+                listener.fatalError(Messages.XCodeBuilder_unlockKeychainFailed());
+                return false;
+            }
+
+            // Show the keychain info after unlocking, if not, OS X will prompt for the keychain password
+            launcher.launch().envs(envs).cmds("/usr/bin/security", "show-keychain-info", keychainPath).stdout(listener).pwd(projectRoot).join();
         }
 
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Team team = getDevelopmentTeam();
+        if(team == null)
+        {
+            listener.fatalError(Messages.XCodeBuilder_teamNotConfigured());
+            return false;
+        }
+        String developmentTeamID = envs.expand(team.getTeamID());
+
+        // the listing is looked for before any probe starts, so a failure here leaves nothing running
+        String listing = null;
+        boolean listingRead = false;
+        if (StringUtils.isEmpty(xcodeWorkspaceFile)) {
+            // a project on its own can be listed from its project.pbxproj
+            listing = projectRoot.act(new PbxprojParser.ListCallable(xcodeProjectFile));
+            listingRead = listing != null;
+        }
+        // the listing of the same project files, if the node kept one, saves starting xcodebuild -list
+        Node builtOn = computer != null ? computer.getNode() : null;
+        FilePath listCache = builtOn != null && builtOn.getRootPath() != null ? builtOn.getRootPath().child("xcode-plugin").child("xcodebuild-list") : null;
+        XcodeBuildListCache.Lookup listLookup = null;
+        if (listing == null && listCache != null) {
+            listLookup = projectRoot.act(new XcodeBuildListCache.LookupCallable(listCache.getRemote(), xcodeWorkspaceFile, xcodeProjectFile));
+            listing = listLookup.getListing();
+        }
+
+        // None of the probes changes anything, so they run side by side, each one's output kept for later.
+        // The keychain has to be unlocked first, as that changes what security finds.
+        Preflight preflight = new Preflight(PREFLIGHT_TIMEOUT, TimeUnit.SECONDS);
+        Preflight.Probe xcodeVersion = null;
+        Preflight.Probe sdks = null;
+        Preflight.Probe marketingVersion;
+        Preflight.Probe bundleVersion;
+        Preflight.Probe identities;
+        Preflight.Probe certificates = null;
+        Preflight.Probe schemes = null;
+        try {
+            // what xcodebuild says of itself only changes with Xcode
+            if (toolchain == null) {
+                xcodeVersion = preflight.start("xcodebuild -version", launcher.launch().envs(envs).cmds(getGlobalConfiguration().getXcodebuildPath(), "-version").pwd(projectRoot));
+                sdks = preflight.start("xcodebuild -showsdks", launcher.launch().envs(envs).cmds(getGlobalConfiguration().getXcodebuildPath(), "-showsdks").pwd(projectRoot));
+            }
+            marketingVersion = preflight.start("agvtool mvers", launcher.launch().envs(envs).cmds(getGlobalConfiguration().getAgvtoolPath(), "mvers", "-terse1").pwd(projectRoot));
+            bundleVersion = preflight.start("agvtool vers", launcher.launch().envs(envs).cmds(getGlobalConfiguration().getAgvtoolPath(), "vers", "-terse").pwd(projectRoot));
+            identities = preflight.start("security find-identity", launcher.launch().envs(envs).cmds("/usr/bin/security", "find-identity", "-p", "codesigning", "-v").pwd(projectRoot));
+            if (!StringUtils.isEmpty(developmentTeamID)) {
+                certificates = preflight.start("security find-certificate", launcher.launch().envs(envs).cmds("/usr/bin/security", "find-certificate", "-a", "-c", developmentTeamID, "-Z", "|", "grep", "^SHA-1").pwd(projectRoot));
+            }
+            if (listing == null) {
+                List<String> commandLine = Lists.newArrayList(getGlobalConfiguration().getXcodebuildPath());
+                commandLine.add("-list");
+                // xcodebuild -list -workspace $workspace
+                if (!StringUtils.isEmpty(xcodeWorkspaceFile)) {
+                    commandLine.add("-workspace");
+                    commandLine.add(xcodeWorkspaceFile + ".xcworkspace");
+                } else if (!StringUtils.isEmpty(xcodeProjectFile)) {
+                    commandLine.add("-project");
+                    commandLine.add(xcodeProjectFile);
+                }
+                schemes = preflight.start("xcodebuild -list", LIST_TIMEOUT, TimeUnit.SECONDS, launcher.launch().envs(envs).cmds(commandLine).pwd(projectRoot));
+            }
+            // the agvtool updates below write to the project, so everything has to be read by then
+            preflight.awaitAll();
+        } finally {
+            // nothing is left running if starting or waiting for a probe fails
+            preflight.close();
+        }
+
+        // XCode Version
+        if (toolchain == null) {
+            listener.getLogger().print(xcodeVersion.getOutput());
+            if (!xcodeVersion.isSuccess()) {
+                listener.fatalError(Messages.XCodeBuilder_xcodeVersionNotFound());
+                return false; // We fail the build if XCode isn't deployed
+            }
+            if (node != null && sdks.isSuccess()) {
+                ToolchainCache.put(node, toolchainStamp, xcodeVersion.getOutput(), sdks.getOutput());
+            }
+        } else {
+            listener.getLogger().print(toolchain.getVersion());
+        }
 
         // Try to read CFBundleShortVersionString from project
         listener.getLogger().println(Messages.XCodeBuilder_fetchingCFBundleShortVersionString());
         String cfBundleShortVersionString = "";
-        returnCode = launcher.launch().envs(envs).cmds(getGlobalConfiguration().getAgvtoolPath(), "mvers", "-terse1").stdout(output).pwd(projectRoot).join();
         // only use this version number if we found it
-        if (returnCode == 0)
-            cfBundleShortVersionString = output.toString().trim();
+        if (marketingVersion.isSuccess())
+            cfBundleShortVersionString = marketingVersion.getOutput().trim();
         if (StringUtils.isEmpty(cfBundleShortVersionString))
             listener.getLogger().println(Messages.XCodeBuilder_CFBundleShortVersionStringNotFound());
         else
             listener.getLogger().println(Messages.XCodeBuilder_CFBundleShortVersionStringFound(cfBundleShortVersionString));
         listener.getLogger().println(Messages.XCodeBuilder_CFBundleShortVersionStringValue(cfBundleShortVersionString));
 
-        output.reset();
-
         // Try to read CFBundleVersion from project
         listener.getLogger().println(Messages.XCodeBuilder_fetchingCFBundleVersion());
         String cfBundleVersion = "";
-        returnCode = launcher.launch().envs(envs).cmds(getGlobalConfiguration().getAgvtoolPath(), "vers", "-terse").stdout(output).pwd(projectRoot).join();
         // only use this version number if we found it
-        if (returnCode == 0)
-            cfBundleVersion = output.toString().trim();
+        if (bundleVersion.isSuccess())
+            cfBundleVersion = bundleVersion.getOutput().trim();
         if (StringUtils.isEmpty(cfBundleVersion))
             listener.getLogger().println(Messages.XCodeBuilder_CFBundleVersionNotFound());
         else
@@ -417,9 +596,8 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
         // Update the bundle ID
         if (this.changeBundleID != null && this.changeBundleID) {
         	listener.getLogger().println(Messages.XCodeBuilder_CFBundleIdentifierChanged(bundleIDInfoPlistPath, bundleID));
-        	returnCode = launcher.launch().envs(envs).cmds("/usr/libexec/PlistBuddy", "-c",  "Set :CFBundleIdentifier " + bundleID, bundleIDInfoPlistPath).stdout(listener).pwd(projectRoot).join();
-
-        	if (returnCode > 0) {
+        	// edited where the file is, in whichever format it is in
+        	if (!projectRoot.child(bundleIDInfoPlistPath).act(new Plist.SetCallable(":CFBundleIdentifier", bundleID))) {
         		listener.fatalError(Messages.XCodeBuilder_CFBundleIdentifierInfoPlistNotFound(bundleIDInfoPlistPath));
         		return false;
         	}
@@ -478,81 +656,54 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
             projectRoot.child("test-reports").deleteRecursive();
 		}
 
-        if (unlockKeychain != null && unlockKeychain) {
-            // Let's unlock the keychain
-            Keychain keychain = getKeychain();
-            if(keychain == null)
-            {
-                listener.fatalError(Messages.XCodeBuilder_keychainNotConfigured());
-                return false;
-            }
-            String keychainPath = envs.expand(keychain.getKeychainPath());
-            String keychainPwd = envs.expand(keychain.getKeychainPassword());
-            launcher.launch().envs(envs).cmds("/usr/bin/security", "list-keychains", "-s", keychainPath).stdout(listener).pwd(projectRoot).join();
-            launcher.launch().envs(envs).cmds("/usr/bin/security", "default-keychain", "-d", "user", "-s", keychainPath).stdout(listener).pwd(projectRoot).join();
-            if (StringUtils.isEmpty(keychainPwd))
-                returnCode = launcher.launch().envs(envs).cmds("/usr/bin/security", "unlock-keychain", keychainPath).stdout(listener).pwd(projectRoot).join();
-            else
-                returnCode = launcher.launch().envs(envs).cmds("/usr/bin/security", "unlock-keychain", "-p", keychainPwd, keychainPath).masks(false, false, false, true, false).stdout(listener).pwd(projectRoot).join();
-
-            if (returnCode > 0) {
-                listener.fatalError(Messages.XCodeBuilder_unlockKeychainFailed());
-                return false;
-            }
-
-            // Show the keychain info after unlocking, if not, OS X will prompt for the keychain password
-            launcher.launch().envs(envs).cmds("/usr/bin/security", "show-keychain-info", keychainPath).stdout(listener).pwd(projectRoot).join();
-        }
-
         // display useful setup information
         listener.getLogger().println(Messages.XCodeBuilder_DebugInfoLineDelimiter());
         listener.getLogger().println(Messages.XCodeBuilder_DebugInfoAvailablePProfiles());
-        /*returnCode =*/ launcher.launch().envs(envs).cmds("/usr/bin/security", "find-identity", "-p", "codesigning", "-v").stdout(listener).pwd(projectRoot).join();
+        listener.getLogger().print(identities.getOutput());
 
-        Team team = getDevelopmentTeam();
-        if(team == null)
-        {
-            listener.fatalError(Messages.XCodeBuilder_teamNotConfigured());
-            return false;
-        }
-        String developmentTeamID = envs.expand(team.getTeamID());
-        if (!StringUtils.isEmpty(developmentTeamID)) {
+        if (certificates != null) {
             listener.getLogger().println(Messages.XCodeBuilder_DebugInfoCanFindPProfile());
-            /*returnCode =*/ launcher.launch().envs(envs).cmds("/usr/bin/security", "find-certificate", "-a", "-c", developmentTeamID, "-Z", "|", "grep", "^SHA-1").stdout(listener).pwd(projectRoot).join();
+            listener.getLogger().print(certificates.getOutput());
             // We could fail here, but this doesn't seem to work as it should right now (output not properly redirected. We might need a parser)
         }
 
         listener.getLogger().println(Messages.XCodeBuilder_DebugInfoAvailableSDKs());
-        /*returnCode =*/ launcher.launch().envs(envs).cmds(getGlobalConfiguration().getXcodebuildPath(), "-showsdks").stdout(listener).pwd(projectRoot).join();
+        listener.getLogger().print(sdks != null ? sdks.getOutput() : toolchain.getSdks());
 
+        listener.getLogger().println(Messages.XCodeBuilder_DebugInfoAvailableSchemes());
         XcodeBuildListParser xcodebuildListParser;
-        {
-            List<String> commandLine = Lists.newArrayList(getGlobalConfiguration().getXcodebuildPath());
-            commandLine.add("-list");
-            // xcodebuild -list -workspace $workspace
-            listener.getLogger().println(Messages.XCodeBuilder_DebugInfoAvailableSchemes());
-            if (!StringUtils.isEmpty(xcodeWorkspaceFile)) {
-                commandLine.add("-workspace");
-                commandLine.add(xcodeWorkspaceFile + ".xcworkspace");
-            } else if (!StringUtils.isEmpty(xcodeProjectFile)) {
-                commandLine.add("-project");
-                commandLine.add(xcodeProjectFile);
-            }
-
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            returnCode = launcher.launch().envs(envs).cmds(commandLine).stdout(baos).pwd(projectRoot).start().joinWithTimeout(10, TimeUnit.SECONDS, listener);
-            String xcodeBuildListOutput = baos.toString("UTF-8");
+        if (schemes == null) {
+            listener.getLogger().println(listing);
+            xcodebuildListParser = new XcodeBuildListParser(listing);
+        } else {
+            String xcodeBuildListOutput = schemes.getOutput();
             listener.getLogger().println(xcodeBuildListOutput);
-            boolean timedOut = returnCode == SIGTERM;
-            if (returnCode > 0 && !timedOut) return false;
-
+            // a listing that did not finish in time is not fatal, there is just nothing to match targets against
+            if (schemes.getReturnCode() > 0 && !schemes.isTimedOut()) return false;
             xcodebuildListParser = new XcodeBuildListParser(xcodeBuildListOutput);
+            if (schemes.isSuccess() && listLookup != null && listLookup.getKey() != null) {
+                try {
+                    listCache.act(new XcodeBuildListCache.StoreCallable(listLookup.getKey(), xcodebuildListParser.format()));
+                } catch (IOException e) {
+                    // the next build just lists the project again
+                    listener.getLogger().println(Messages.XCodeBuilder_xcodebuildListNotCached(e.getMessage()));
+                }
+            }
+        }
+
+        preflight.printTimings(listener.getLogger());
+        if (sdks == null) {
+            listener.getLogger().println(Messages.XCodeBuilder_toolchainCached(Util.getPastTimeString(System.currentTimeMillis() - toolchain.getRecorded())));
+        }
+        if (listingRead) {
+            listener.getLogger().println(Messages.XCodeBuilder_xcodebuildListRead());
+        } else if (schemes == null) {
+            listener.getLogger().println(Messages.XCodeBuilder_xcodebuildListCached());
         }
         listener.getLogger().println(Messages.XCodeBuilder_DebugInfoLineDelimiter());
 
         // Build
         StringBuilder xcodeReport = new StringBuilder(Messages.XCodeBuilder_invokeXcodebuild());
-        XCodeBuildOutputParser reportGenerator = new JenkinsXCodeBuildOutputParser(projectRoot, listener);
         List<String> commandLine = Lists.newArrayList(getGlobalConfiguration().getXcodebuildPath());
 
         // Prioritizing schema over target setting
@@ -663,11 +814,83 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
         if (!StringUtils.isEmpty(xcodebuildArguments)) {
             commandLine.addAll(splitXcodeBuildArguments(xcodebuildArguments));
         }
+        XCodeBuildCallable xcodebuild = new XCodeBuildCallable(commandLine, envs, projectRoot, listener);
+        xcodebuild.setStreamingTestReports(streamTestReports != null && streamTestReports);
+        xcodebuild.setParallelTesting(isParallelTestingEnabled(commandLine));
+        xcodebuild.setCompactConsole(compactConsoleLog != null && compactConsoleLog);
+        xcodebuild.setWritingTestReports(skipTestReportFiles == null || !skipTestReportFiles);
+        xcodebuild.setCollectingTestResults(publishTestResults != null && publishTestResults);
+        if (keepRawLog != null && keepRawLog) {
+            // only the logs of this build are kept, those of earlier builds would pile up in the workspace
+            for (FilePath earlierRawLog : projectRoot.list(new RawLogsOfOtherBuilds(build.getNumber()))) {
+                earlierRawLog.delete();
+            }
+            FilePath rawLog = projectRoot.child("xcodebuild-" + build.getNumber() + ".log.gz");
+            // a build with several Xcode steps keeps the log of each
+            for (int i = 2; rawLog.exists(); i++) {
+                rawLog = projectRoot.child("xcodebuild-" + build.getNumber() + "-" + i + ".log.gz");
+            }
+            xcodebuild.setRawLog(rawLog.getName());
+        }
 
         listener.getLogger().println(xcodeReport.toString());
-        returnCode = launcher.launch().envs(envs).cmds(commandLine).stdout(reportGenerator.getOutputStream()).pwd(projectRoot).join();
+        xcodebuild.printCommandLine(listener);
+        listener.getLogger().flush();
+        // the output of xcodebuild follows what is in the log so far, if nothing else writes to it meanwhile
+        long consoleStart = build.getLogFile().length();
+        XCodeBuildCallable.Result xcodebuildResult;
+        if (launcher instanceof Launcher.LocalLauncher || launcher instanceof Launcher.RemoteLauncher) {
+            // parse the output where xcodebuild runs, so only the console output crosses the channel
+            xcodebuildResult = projectRoot.act(xcodebuild);
+        } else {
+            // a decorated launcher may change how xcodebuild is started, so it has to be used
+            xcodebuildResult = xcodebuild.run(launcher, projectRoot, listener);
+        }
+        returnCode = xcodebuildResult.returnCode;
+        if (!xcodebuildResult.diagnostics.isEmpty()) {
+            XCodeDiagnosticsAction diagnosticsAction = build.getAction(XCodeDiagnosticsAction.class);
+            if (diagnosticsAction == null) {
+                build.addAction(new XCodeDiagnosticsAction(xcodebuildResult.diagnostics));
+            } else {
+                // a later Xcode step of the same build
+                diagnosticsAction.getDiagnostics().addAll(xcodebuildResult.diagnostics);
+            }
+        }
+        if (!xcodebuildResult.buildTimings.isEmpty()) {
+            XCodeBuildTimingAction timingAction = build.getAction(XCodeBuildTimingAction.class);
+            if (timingAction == null) {
+                build.addAction(new XCodeBuildTimingAction(xcodebuildResult.buildTimings));
+            } else {
+                timingAction.getBuildTimings().addAll(xcodebuildResult.buildTimings);
+            }
+        }
+        if (!xcodebuildResult.typeCheckHotspots.isEmpty()) {
+            XCodeTypeCheckAction typeCheckAction = build.getAction(XCodeTypeCheckAction.class);
+            if (typeCheckAction == null) {
+                build.addAction(new XCodeTypeCheckAction(xcodebuildResult.typeCheckHotspots));
+            } else {
+                typeCheckAction.getHotspots().addAll(xcodebuildResult.typeCheckHotspots);
+            }
+        }
+        if (xcodebuildResult.testResults != null && xcodebuildResult.testResults.getTests() > 0) {
+            XCodeTestResultAction testResultAction = build.getAction(XCodeTestResultAction.class);
+            if (testResultAction == null) {
+                build.addAction(new XCodeTestResultAction(xcodebuildResult.testResults));
+            } else {
+                testResultAction.getResult().addAll(xcodebuildResult.testResults);
+            }
+            if (xcodebuildResult.testResults.getFailures() + xcodebuildResult.testResults.getErrors() > 0) {
+                build.setResult(Result.UNSTABLE);
+            }
+        }
+        // the offsets of a compacted console are those of the raw log instead
+        if (!xcodebuildResult.consoleIndex.isEmpty() && (compactConsoleLog == null || !compactConsoleLog)) {
+            if (!XCodeConsoleIndexAction.record(build, xcodebuildResult.consoleIndex, consoleStart)) {
+                listener.getLogger().println(Messages.XCodeBuilder_consoleIndexSkipped());
+            }
+        }
         if (allowFailingBuildResults != null && !allowFailingBuildResults) {
-            if (reportGenerator.getExitCode() != 0) return false;
+            if (xcodebuildResult.exitCode != 0) return false;
             if (returnCode > 0) return false;
         }
 
@@ -725,16 +948,13 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
                 String shortVersion = "";
 
                 try {
-                    output.reset();
-                    returnCode = launcher.launch().envs(envs).cmds("/usr/libexec/PlistBuddy", "-c", "Print :ApplicationProperties:CFBundleVersion", archive.absolutize().child("Info.plist").getRemote()).stdout(output).pwd(projectRoot).join();
-                    if (returnCode == 0) {
-                        version = output.toString().trim();
+                    Map<String, String> versions = archive.absolutize().child("Info.plist").act(new Plist.ReadCallable(
+                            ":ApplicationProperties:CFBundleVersion", ":ApplicationProperties:CFBundleShortVersionString"));
+                    if (versions.containsKey(":ApplicationProperties:CFBundleVersion")) {
+                        version = versions.get(":ApplicationProperties:CFBundleVersion").trim();
                     }
-
-                    output.reset();
-                    returnCode = launcher.launch().envs(envs).cmds("/usr/libexec/PlistBuddy", "-c", "Print :ApplicationProperties:CFBundleShortVersionString", archive.absolutize().child("Info.plist").getRemote()).stdout(output).pwd(projectRoot).join();
-                    if (returnCode == 0) {
-                        shortVersion = output.toString().trim();
+                    if (versions.containsKey(":ApplicationProperties:CFBundleShortVersionString")) {
+                        shortVersion = versions.get(":ApplicationProperties:CFBundleShortVersionString").trim();
                     }
                 }
                 catch(Exception ex) {
@@ -827,15 +1047,18 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
                     String displayName = "";
                     String bundleId = "";
 
-                    output.reset();
-                    returnCode = launcher.launch().envs(envs).cmds("/usr/libexec/PlistBuddy", "-c", "Print :CFBundleIdentifier", app.absolutize().child("Info.plist").getRemote()).stdout(output).pwd(projectRoot).join();
-                    if (returnCode == 0) {
-                        bundleId = output.toString().trim();
+                    try {
+                        Map<String, String> appInfo = app.absolutize().child("Info.plist").act(new Plist.ReadCallable(":CFBundleIdentifier", ":CFBundleDisplayName"));
+                        if (appInfo.containsKey(":CFBundleIdentifier")) {
+                            bundleId = appInfo.get(":CFBundleIdentifier").trim();
+                        }
+                        if (appInfo.containsKey(":CFBundleDisplayName")) {
+                            displayName = appInfo.get(":CFBundleDisplayName").trim();
+                        }
                     }
-                    output.reset();
-                    returnCode = launcher.launch().envs(envs).cmds("/usr/libexec/PlistBuddy", "-c", "Print :CFBundleDisplayName", app.absolutize().child("Info.plist").getRemote()).stdout(output).pwd(projectRoot).join();
-                    if (returnCode == 0) {
-                        displayName = output.toString().trim();
+                    catch(IOException | RuntimeException ex) {
+                        // the manifest is still written, without what could not be read
+                        listener.getLogger().println("Failed to get bundle identifier and display name from Info.plist: " + ex.toString());
                     }
 
                     String manifest = MANIFEST_PLIST_TEMPLATE
@@ -897,6 +1120,30 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
         return result;
     }
 
+    static boolean isParallelTestingEnabled(List<String> commandLine) {
+        int index = commandLine.lastIndexOf("-parallel-testing-enabled");
+        return index >= 0 && index + 1 < commandLine.size() && "YES".equalsIgnoreCase(commandLine.get(index + 1));
+    }
+
+    /**
+     * Matches the raw xcodebuild logs kept by {@link #keepRawLog} for builds other than the given one.
+     */
+    static class RawLogsOfOtherBuilds implements FileFilter, Serializable {
+        private static final long serialVersionUID = 1L;
+        private static final Pattern RAW_LOG = Pattern.compile("xcodebuild-(\\d+)(-\\d+)?\\.log\\.gz");
+
+        private final int buildNumber;
+
+        RawLogsOfOtherBuilds(int buildNumber) {
+            this.buildNumber = buildNumber;
+        }
+
+        public boolean accept(File file) {
+            Matcher m = RAW_LOG.matcher(file.getName());
+            return m.matches() && !m.group(1).equals(String.valueOf(buildNumber)) && file.isFile();
+        }
+    }
+
     public GlobalConfigurationImpl getGlobalConfiguration() {
     	return getDescriptor().getGlobalConfiguration();
     }
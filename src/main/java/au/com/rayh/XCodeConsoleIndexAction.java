@@ -0,0 +1,188 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Serves the console output of a single test suite or test case of a build, read straight from
+ * where the {@link ConsoleIndex} of the build says it is in the log.
+ */
+public class XCodeConsoleIndexAction implements RunAction2 {
+    static final String INDEX_FILE = "xcode-console-index";
+    private static final byte[] SUITE_START = "Test Suite '".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TEST_CASE_START = "Test Case '-[".getBytes(StandardCharsets.UTF_8);
+
+    private transient Run<?, ?> run;
+
+    /**
+     * Adds the index of an Xcode build step to the index of the build, creating the action if need be.
+     * @param consoleStart where the output of the build step starts in the console log
+     * @return false if the log does not have the suites and test cases where the index says, and
+     * nothing was added
+     */
+    public static synchronized boolean record(Run<?, ?> run, ConsoleIndex stepIndex, long consoleStart) throws IOException {
+        if (!record(new File(run.getRootDir(), INDEX_FILE), run.getLogFile(), stepIndex, consoleStart)) {
+            return false;
+        }
+        if (run.getAction(XCodeConsoleIndexAction.class) == null) {
+            run.addAction(new XCodeConsoleIndexAction());
+        }
+        return true;
+    }
+
+    static boolean record(File indexFile, File log, ConsoleIndex stepIndex, long consoleStart) throws IOException {
+        if (!linesUp(log, stepIndex, consoleStart)) {
+            return false;
+        }
+        ConsoleIndex index = indexFile.exists() ? ConsoleIndex.load(indexFile) : new ConsoleIndex();
+        index.addAll(stepIndex, consoleStart);
+        index.save(indexFile);
+        return true;
+    }
+
+    /**
+     * Whether each suite and test case of the index starts with its line and ends at a line break in
+     * the log. It does not if anything but xcodebuild wrote to the log after the offset was taken.
+     */
+    static boolean linesUp(File log, ConsoleIndex index, long consoleStart) throws IOException {
+        if (!log.isFile()) {
+            return false;
+        }
+        try (RandomAccessFile in = new RandomAccessFile(log, "r")) {
+            return linesUp(in, index.getSuites(), consoleStart, SUITE_START)
+                    && linesUp(in, index.getTestCases(), consoleStart, TEST_CASE_START);
+        }
+    }
+
+    private static boolean linesUp(RandomAccessFile in, List<ConsoleIndex.Entry> entries, long consoleStart, byte[] start) throws IOException {
+        byte[] buffer = new byte[start.length];
+        for (ConsoleIndex.Entry entry : entries) {
+            long offset = consoleStart + entry.getStart();
+            if (offset + buffer.length > in.length()) {
+                return false;
+            }
+            in.seek(offset);
+            in.readFully(buffer);
+            if (!Arrays.equals(buffer, start)) {
+                return false;
+            }
+            if (entry.getEnd() >= 0) {
+                long end = consoleStart + entry.getEnd();
+                if (end > in.length()) {
+                    return false;
+                }
+                in.seek(end - 1);
+                if (in.read() != '\n') {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public Run<?, ?> getRun() {
+        return run;
+    }
+
+    public ConsoleIndex getIndex() throws IOException {
+        return ConsoleIndex.load(new File(run.getRootDir(), INDEX_FILE));
+    }
+
+    public String getIconFileName() {
+        return "terminal.png";
+    }
+
+    public String getDisplayName() {
+        return Messages.XCodeConsoleIndexAction_DisplayName();
+    }
+
+    public String getUrlName() {
+        return "xcodeTestOutput";
+    }
+
+    /**
+     * Serves the output of the suite given by the {@code suite} parameter, or the test case given by
+     * {@code test} as its class and name separated by a slash.
+     */
+    public void doSlice(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        ConsoleIndex index = getIndex();
+        ConsoleIndex.Entry entry = find(index, req.getParameter("suite"), req.getParameter("test"));
+        File log = run.getLogFile();
+        // a compressed log cannot be read from the middle
+        if (entry == null || !log.isFile() || log.getName().endsWith(".gz")) {
+            rsp.sendError(HttpURLConnection.HTTP_NOT_FOUND);
+            return;
+        }
+        rsp.setContentType("text/plain;charset=UTF-8");
+        copy(log, entry.getStart(), entry.getEnd(), rsp.getOutputStream());
+    }
+
+    /**
+     * The entry of the suite, if given, or else of the test case, or null.
+     */
+    static ConsoleIndex.Entry find(ConsoleIndex index, String suite, String test) {
+        return suite != null ? index.getSuite(suite) : test != null ? index.getTestCase(test) : null;
+    }
+
+    /**
+     * Copies the bytes of a file from the start offset up to the end offset, or the end of the file if that is -1.
+     */
+    static void copy(File file, long start, long end, OutputStream out) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            long stop = end < 0 ? in.length() : Math.min(end, in.length());
+            in.seek(start);
+            byte[] buffer = new byte[64 * 1024];
+            for (long remaining = stop - start; remaining > 0; ) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    break;
+                }
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+    }
+
+    public void onAttached(Run<?, ?> r) {
+        run = r;
+    }
+
+    public void onLoad(Run<?, ?> r) {
+        run = r;
+    }
+}
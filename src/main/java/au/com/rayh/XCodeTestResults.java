@@ -0,0 +1,199 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import au.com.rayh.report.TestCase;
+import au.com.rayh.report.TestError;
+import au.com.rayh.report.TestFailure;
+import au.com.rayh.report.TestSuite;
+import hudson.model.Run;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The test results of a build, collected while parsing instead of read back from the JUnit reports.
+ * Only the totals of each suite and the failed test cases are kept, which is what the test results
+ * of a build are looked at for.
+ */
+public class XCodeTestResults implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private int tests;
+    private int failures;
+    private int errors;
+    private float duration;
+    private final List<Suite> suites = new ArrayList<>();
+    private final List<FailedTestCase> failedTestCases = new ArrayList<>();
+
+    private transient Run<?, ?> run;
+
+    public static class Suite implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String name;
+        private final int tests;
+        private final int failures;
+        private final int errors;
+        private final float time;
+
+        Suite(String name, int tests, int failures, int errors, float time) {
+            this.name = name;
+            this.tests = tests;
+            this.failures = failures;
+            this.errors = errors;
+            this.time = time;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getTests() {
+            return tests;
+        }
+
+        public int getFailures() {
+            return failures;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        public float getTime() {
+            return time;
+        }
+    }
+
+    public static class FailedTestCase implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String suite;
+        private final String name;
+        private final float time;
+        private final List<String> messages;
+
+        FailedTestCase(String suite, String name, float time, List<String> messages) {
+            this.suite = suite;
+            this.name = name;
+            this.time = time;
+            this.messages = messages;
+        }
+
+        public String getSuite() {
+            return suite;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public float getTime() {
+            return time;
+        }
+
+        /**
+         * The messages of the failures of the test case, each with its location, and of the error that ended it.
+         */
+        public List<String> getMessages() {
+            return Collections.unmodifiableList(messages);
+        }
+    }
+
+    /**
+     * Adds the totals of a finished suite.
+     */
+    public void addSuite(TestSuite suite) {
+        tests += suite.getTests();
+        failures += suite.getFailures();
+        errors += suite.getErrors();
+        duration += suite.getTime();
+        suites.add(new Suite(suite.getName(), suite.getTests(), suite.getFailures(), suite.getErrors(), suite.getTime()));
+    }
+
+    /**
+     * Adds a test case that failed or ended with an error.
+     */
+    public void addFailedTestCase(String suite, TestCase testCase) {
+        List<String> messages = new ArrayList<>();
+        for (TestFailure failure : testCase.getFailures()) {
+            messages.add(failure.getLocation() + ": " + failure.getMessage());
+        }
+        for (TestError error : testCase.getErrors()) {
+            messages.add(error.getType() + ": " + error.getMessage());
+        }
+        failedTestCases.add(new FailedTestCase(suite, testCase.getName(), testCase.getTime(), messages));
+    }
+
+    /**
+     * Adds the results of another Xcode build step of the build.
+     */
+    public void addAll(XCodeTestResults other) {
+        tests += other.tests;
+        failures += other.failures;
+        errors += other.errors;
+        duration += other.duration;
+        suites.addAll(other.suites);
+        failedTestCases.addAll(other.failedTestCases);
+    }
+
+    public int getTests() {
+        return tests;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+
+    public int getErrors() {
+        return errors;
+    }
+
+    /**
+     * The time taken by all suites, in seconds.
+     */
+    public float getDuration() {
+        return duration;
+    }
+
+    public List<Suite> getSuites() {
+        return Collections.unmodifiableList(suites);
+    }
+
+    public List<FailedTestCase> getFailedTestCases() {
+        return Collections.unmodifiableList(failedTestCases);
+    }
+
+    public Run<?, ?> getRun() {
+        return run;
+    }
+
+    void setRun(Run<?, ?> run) {
+        this.run = run;
+    }
+}
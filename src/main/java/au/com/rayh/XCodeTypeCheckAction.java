@@ -0,0 +1,92 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+
+/**
+ * The Swift functions and expressions of a build that took longest to type-check, with their times
+ * in the previous build to compare against.
+ */
+public class XCodeTypeCheckAction implements RunAction2 {
+    /**
+     * How many builds back to look for the results to compare with.
+     */
+    static final int MAX_PREVIOUS_BUILDS = 5;
+
+    private final TypeCheckHotspots hotspots;
+    private transient Run<?, ?> run;
+
+    public XCodeTypeCheckAction(TypeCheckHotspots hotspots) {
+        this.hotspots = hotspots;
+    }
+
+    public TypeCheckHotspots getHotspots() {
+        return hotspots;
+    }
+
+    public Run<?, ?> getRun() {
+        return run;
+    }
+
+    /**
+     * The hotspots of the most recent of the {@value #MAX_PREVIOUS_BUILDS} builds before this one that has them, or
+     * null. The search stops there so that a page view does not load the whole history of the job.
+     */
+    public TypeCheckHotspots getPreviousHotspots() {
+        if (run == null) {
+            return null;
+        }
+        Run<?, ?> previous = run.getPreviousBuild();
+        for (int i = 0; i < MAX_PREVIOUS_BUILDS && previous != null; i++, previous = previous.getPreviousBuild()) {
+            XCodeTypeCheckAction action = previous.getAction(XCodeTypeCheckAction.class);
+            if (action != null) {
+                return action.hotspots;
+            }
+        }
+        return null;
+    }
+
+    public String getIconFileName() {
+        return "clock.png";
+    }
+
+    public String getDisplayName() {
+        return Messages.XCodeTypeCheckAction_DisplayName();
+    }
+
+    public String getUrlName() {
+        return "xcodeTypeCheck";
+    }
+
+    public void onAttached(Run<?, ?> r) {
+        run = r;
+    }
+
+    public void onLoad(Run<?, ?> r) {
+        run = r;
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import org.apache.commons.lang.StringUtils;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The targets, configurations and schemes {@code xcodebuild -list} found in a project, kept on the
+ * node that builds it. What the listing says only depends on the workspace, the projects it
+ * refers to and their schemes, so a listing is filed under a digest of those files; a build that
+ * finds its digest has the listing without starting xcodebuild, which on a large workspace can
+ * take longer than the rest of the preflight together.
+ */
+public class XcodeBuildListCache {
+    /**
+     * How many listings a node keeps, the oldest being dropped first.
+     */
+    static final int MAX_ENTRIES = 100;
+
+    private static final String SHARED_SCHEMES = "xcshareddata/xcschemes";
+    private static final String USER_DATA = "xcuserdata";
+
+    private XcodeBuildListCache() {
+    }
+
+    /**
+     * The digest of a project, and its listing if the node has it.
+     */
+    public static class Lookup implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String key;
+        private final String listing;
+
+        Lookup(String key, String listing) {
+            this.key = key;
+            this.listing = listing;
+        }
+
+        /**
+         * The digest the listing is filed under, or null if the project could not be found.
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * The listing in the layout of {@link XcodeBuildListParser#format()}, or null if there is none.
+         */
+        public String getListing() {
+            return listing;
+        }
+    }
+
+    /**
+     * Looks up the listing of the project, run on the directory xcodebuild runs in.
+     */
+    public static class LookupCallable extends MasterToSlaveFileCallable<Lookup> {
+        private static final long serialVersionUID = 1L;
+
+        private final String cacheDir;
+        private final String workspaceFile;
+        private final String projectFile;
+
+        /**
+         * @param cacheDir      where the node keeps the listings
+         * @param workspaceFile the workspace as given to xcodebuild, without its extension, or null
+         * @param projectFile   the project as given to xcodebuild, or null
+         */
+        public LookupCallable(String cacheDir, String workspaceFile, String projectFile) {
+            this.cacheDir = cacheDir;
+            this.workspaceFile = workspaceFile;
+            this.projectFile = projectFile;
+        }
+
+        public Lookup invoke(File projectRoot, VirtualChannel channel) throws IOException {
+            String key;
+            try {
+                key = key(projectRoot, workspaceFile, projectFile);
+            } catch (IOException e) {
+                // xcodebuild will tell what is wrong with the workspace
+                key = null;
+            }
+            if (key == null) {
+                return new Lookup(null, null);
+            }
+            File entry = new File(cacheDir, key);
+            if (!entry.isFile()) {
+                return new Lookup(key, null);
+            }
+            // mark it as used, so it is not the next one dropped
+            entry.setLastModified(System.currentTimeMillis());
+            return new Lookup(key, new String(Files.readAllBytes(entry.toPath()), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Files a listing, run on the directory the node keeps them in.
+     */
+    public static class StoreCallable extends MasterToSlaveFileCallable<Void> {
+        private static final long serialVersionUID = 1L;
+
+        private final String key;
+        private final String listing;
+
+        public StoreCallable(String key, String listing) {
+            this.key = key;
+            this.listing = listing;
+        }
+
+        public Void invoke(File cacheDir, VirtualChannel channel) throws IOException {
+            if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+                throw new IOException("Cannot create " + cacheDir);
+            }
+            // builds of the same project on the node may run at the same time
+            File temp = File.createTempFile(key, ".tmp", cacheDir);
+            Files.write(temp.toPath(), listing.getBytes(StandardCharsets.UTF_8));
+            Files.move(temp.toPath(), new File(cacheDir, key).toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+            File[] entries = cacheDir.listFiles(new FileFilter() {
+                public boolean accept(File file) {
+                    return file.isFile() && !file.getName().endsWith(".tmp");
+                }
+            });
+            if (entries != null && entries.length > MAX_ENTRIES) {
+                Arrays.sort(entries, new Comparator<File>() {
+                    public int compare(File a, File b) {
+                        long diff = a.lastModified() - b.lastModified();
+                        return diff < 0 ? -1 : diff > 0 ? 1 : 0;
+                    }
+                });
+                for (int i = 0; i < entries.length - MAX_ENTRIES; i++) {
+                    entries[i].delete();
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The digest of what xcodebuild -list reads: the workspace and, for the workspace and every
+     * project in it, the project file and the names of its schemes. Null if there is no telling
+     * which project xcodebuild would list.
+     */
+    static String key(File projectRoot, String workspaceFile, String projectFile) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+        List<File> projects = new ArrayList<>();
+        if (!StringUtils.isEmpty(workspaceFile)) {
+            File workspace = new File(projectRoot, workspaceFile + ".xcworkspace");
+            File data = new File(workspace, "contents.xcworkspacedata");
+            if (!data.isFile()) {
+                return null;
+            }
+            update(digest, "workspace", workspace.getName());
+            update(digest, data);
+            updateSchemes(digest, workspace);
+            projects.addAll(projectsOf(workspace));
+        } else {
+            File project = projectOf(projectRoot, projectFile);
+            if (project == null) {
+                return null;
+            }
+            projects.add(project);
+        }
+
+        for (File project : projects) {
+            File pbxproj = new File(project, "project.pbxproj");
+            update(digest, "project", project.getName());
+            if (pbxproj.isFile()) {
+                update(digest, pbxproj);
+                updateSchemes(digest, project);
+            }
+        }
+        return Util.toHexString(digest.digest());
+    }
+
+    /**
+     * The project xcodebuild uses when given no workspace: the one given, or else the only one in
+     * the directory. Null if the directory has none or several.
+     */
+    static File projectOf(File projectRoot, String projectFile) {
+        if (!StringUtils.isEmpty(projectFile)) {
+            return new File(projectRoot, projectFile.endsWith(".xcodeproj") ? projectFile : projectFile + ".xcodeproj");
+        }
+        File[] found = projectRoot.listFiles(new FileFilter() {
+            public boolean accept(File file) {
+                return file.isDirectory() && file.getName().endsWith(".xcodeproj");
+            }
+        });
+        return found != null && found.length == 1 ? found[0] : null;
+    }
+
+    /**
+     * The projects a workspace refers to, as far as they can be told from its contents.
+     */
+    static List<File> projectsOf(File workspace) throws IOException {
+        List<File> projects = new ArrayList<>();
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            Element root = factory.newDocumentBuilder().parse(new File(workspace, "contents.xcworkspacedata")).getDocumentElement();
+            addProjects(workspace, workspace.getParentFile(), root, projects);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Cannot read " + workspace, e);
+        }
+        return projects;
+    }
+
+    private static void addProjects(File workspace, File group, Element element, List<File> projects) {
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (!(child instanceof Element)) {
+                continue;
+            }
+            Element ref = (Element) child;
+            File location = resolve(workspace, group, ref.getAttribute("location"));
+            if ("FileRef".equals(ref.getTagName())) {
+                if (location != null && location.getName().endsWith(".xcodeproj")) {
+                    projects.add(location);
+                }
+            } else if ("Group".equals(ref.getTagName())) {
+                addProjects(workspace, location != null ? location : group, ref, projects);
+            }
+        }
+    }
+
+    /**
+     * Where a location of a workspace points to: {@code group:} is relative to the enclosing
+     * group, {@code container:} to the directory of the workspace, and {@code self:} is the
+     * project a workspace inside a project belongs to.
+     */
+    private static File resolve(File workspace, File group, String location) {
+        int colon = location.indexOf(':');
+        if (colon < 0) {
+            return null;
+        }
+        String type = location.substring(0, colon);
+        String path = location.substring(colon + 1);
+        switch (type) {
+            case "group":
+                return path.isEmpty() ? group : new File(group, path);
+            case "container":
+                return path.isEmpty() ? workspace.getParentFile() : new File(workspace.getParentFile(), path);
+            case "absolute":
+                return new File(path);
+            case "self":
+                return workspace.getParentFile();
+            default:
+                return null;
+        }
+    }
+
+    private static void updateSchemes(MessageDigest digest, File container) {
+        for (String scheme : schemesOf(container)) {
+            update(digest, "scheme", scheme);
+        }
+    }
+
+    /**
+     * The file names of the shared schemes of a workspace or project and of those of its users, sorted.
+     */
+    static List<String> schemesOf(File container) {
+        List<String> schemes = new ArrayList<>();
+        addSchemes(new File(container, SHARED_SCHEMES), schemes);
+        File[] users = new File(container, USER_DATA).listFiles();
+        if (users != null) {
+            for (File user : users) {
+                addSchemes(new File(user, "xcschemes"), schemes);
+            }
+        }
+        Collections.sort(schemes);
+        return schemes;
+    }
+
+    private static void addSchemes(File dir, List<String> schemes) {
+        String[] names = dir.list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.endsWith(".xcscheme")) {
+                    schemes.add(name);
+                }
+            }
+        }
+    }
+
+    private static void update(MessageDigest digest, String kind, String value) {
+        digest.update(kind.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static void update(MessageDigest digest, File file) throws IOException {
+        digest.update(Files.readAllBytes(file.toPath()));
+        digest.update((byte) 0);
+    }
+}
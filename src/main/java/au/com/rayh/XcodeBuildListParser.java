@@ -38,6 +38,12 @@ public class XcodeBuildListParser {
         }
     }
 
+    XcodeBuildListParser(List<String> targets, List<String> configurations, List<String> schemes) {
+        this.targets.addAll(targets);
+        this.configurations.addAll(configurations);
+        this.schemes.addAll(schemes);
+    }
+
     public List<String> getTargets() {
         return this.targets;
     }
@@ -49,4 +55,26 @@ public class XcodeBuildListParser {
     public List<String> getSchemes() {
         return this.schemes;
     }
+
+    /**
+     * The lists as xcodebuild -list prints them, which parse back into the same lists.
+     */
+    public String format() {
+        StringBuilder out = new StringBuilder();
+        format(out, "Targets:", targets);
+        format(out, "Build Configurations:", configurations);
+        format(out, "Schemes:", schemes);
+        return out.toString();
+    }
+
+    private static void format(StringBuilder out, String title, List<String> list) {
+        if (list.isEmpty()) {
+            return;
+        }
+        out.append("    ").append(title).append('\n');
+        for (String item : list) {
+            out.append("        ").append(item).append('\n');
+        }
+        out.append('\n');
+    }
 }
@@ -0,0 +1,160 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh.report;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Calendar;
+import java.util.Date;
+import javax.xml.bind.DatatypeConverter;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * A test suite that writes each test case out as soon as it finishes instead of keeping it until
+ * the suite ends, so memory use does not depend on the size of the suite.
+ * Test cases go to a temporary file; once the suite has ended {@link #writeReport(OutputStream)}
+ * writes the testsuite element, whose counts and time are then known, followed by the test cases.
+ * The report has the same shape as the one JAXB produces for a {@link TestSuite}.
+ */
+public class StreamingTestSuite extends TestSuite implements Closeable {
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private final File testCasesFile;
+    private OutputStream testCasesStream;
+    private XMLStreamWriter testCasesWriter;
+
+    public StreamingTestSuite(String hostname, String name, Date startTime) throws IOException {
+        super(hostname, name, startTime);
+        testCasesFile = File.createTempFile("TEST-", ".xml.part");
+        try {
+            testCasesStream = new BufferedOutputStream(new FileOutputStream(testCasesFile));
+            testCasesWriter = createWriter(testCasesStream);
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void addTestCase(TestCase testCase) throws IOException {
+        try {
+            testCasesWriter.writeStartElement("testcase");
+            writeAttribute(testCasesWriter, "classname", testCase.classname);
+            writeAttribute(testCasesWriter, "name", testCase.name);
+            writeAttribute(testCasesWriter, "time", String.valueOf(testCase.time));
+            for (TestFailure failure : testCase.failures) {
+                testCasesWriter.writeStartElement("failure");
+                writeAttribute(testCasesWriter, "message", failure.message);
+                writeAttribute(testCasesWriter, "type", failure.type);
+                if (failure.location != null) {
+                    testCasesWriter.writeCharacters(failure.location);
+                }
+                testCasesWriter.writeEndElement();
+            }
+            for (TestError error : testCase.errors) {
+                testCasesWriter.writeEmptyElement("error");
+                writeAttribute(testCasesWriter, "message", error.message);
+                writeAttribute(testCasesWriter, "type", error.type);
+            }
+            testCasesWriter.writeEndElement();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Writes the complete report. Only call once the suite has ended.
+     */
+    public void writeReport(OutputStream out) throws IOException {
+        try {
+            testCasesWriter.close();
+            testCasesWriter = null;
+            testCasesStream.close();
+            testCasesStream = null;
+
+            XMLStreamWriter writer = createWriter(out);
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeStartElement("testsuite");
+            writeAttribute(writer, "failures", String.valueOf(failures));
+            writeAttribute(writer, "errors", String.valueOf(errors));
+            writeAttribute(writer, "hostname", hostname);
+            writeAttribute(writer, "name", name);
+            writeAttribute(writer, "tests", String.valueOf(tests));
+            writeAttribute(writer, "time", String.valueOf(time));
+            if (endTime != null) {
+                Calendar timestamp = Calendar.getInstance();
+                timestamp.setTime(endTime);
+                writeAttribute(writer, "timestamp", DatatypeConverter.printDateTime(timestamp));
+            }
+            // closes the start tag so the test cases can be copied in verbatim
+            writer.writeCharacters("");
+            writer.flush();
+            Files.copy(testCasesFile.toPath(), out);
+            out.write("</testsuite>".getBytes(StandardCharsets.UTF_8));
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Discards the test cases written so far.
+     */
+    public void close() throws IOException {
+        try {
+            if (testCasesWriter != null) {
+                testCasesWriter.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            if (testCasesStream != null) {
+                testCasesStream.close();
+            }
+            Files.deleteIfExists(testCasesFile.toPath());
+        }
+    }
+
+    private static XMLStreamWriter createWriter(OutputStream out) throws IOException {
+        try {
+            return OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void writeAttribute(XMLStreamWriter writer, String name, String value) throws XMLStreamException {
+        if (value != null) {
+            writer.writeAttribute(name, value);
+        }
+    }
+}
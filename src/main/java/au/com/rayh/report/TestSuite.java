@@ -26,6 +26,7 @@ package au.com.rayh.report;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -88,6 +89,13 @@ public class TestSuite {
         return tests;
     }
 
+    /**
+     * The time the suite took in seconds, known once it has ended.
+     */
+    public float getTime() {
+        return time;
+    }
+
     public void addFailure() {
         failures+=1;
     }
@@ -119,4 +127,11 @@ public class TestSuite {
         return testcases;
     }
 
+    /**
+     * Adds a finished test case to the suite.
+     */
+    public void addTestCase(TestCase testCase) throws IOException {
+        testcases.add(testCase);
+    }
+
 }
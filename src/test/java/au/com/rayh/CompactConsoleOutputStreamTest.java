@@ -0,0 +1,89 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import hudson.util.IOUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompactConsoleOutputStreamTest {
+
+    @Test
+    public void shouldLeaveOutTheCommandLinesOfBuildSteps() throws Exception {
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        CompactConsoleOutputStream out = new CompactConsoleOutputStream(console);
+        IOUtils.copy(getClass().getResourceAsStream("/XCodeBuild_output_build_1.txt"), out);
+        out.finish();
+
+        String expected = "Build settings from command line:\n"
+                + "    SDK = iphonesimulator10.3\n"
+                + "\n"
+                + "=== BUILD TARGET CardExample OF PROJECT CardExample WITH CONFIGURATION Debug ===\n"
+                + "\n"
+                + "Check dependencies\n"
+                + "CompileSwift normal x86_64 /Users/jenkins/workspace/CardExample/CardExample/AppDelegate.swift\n"
+                + "    ... and 7 more CompileSwift steps\n"
+                + "/Users/jenkins/workspace/CardExample/CardExample/Deck.swift:41:13: warning: variable 'index' was never mutated; consider changing to 'let' constant\n"
+                + "        var index = Int(arc4random_uniform(UInt32(cards.count)))\n"
+                + "        ~~~ ^\n"
+                + "        let\n"
+                + "Ld /Users/jenkins/workspace/CardExample/build/Debug-iphonesimulator/CardExample.app/CardExample normal x86_64\n"
+                + "CopySwiftLibs /Users/jenkins/workspace/CardExample/build/Debug-iphonesimulator/CardExample.app\n"
+                + "CodeSign /Users/jenkins/workspace/CardExample/build/Debug-iphonesimulator/CardExample.app\n"
+                + "Signing Identity:     \"-\"\n"
+                + "** BUILD SUCCEEDED **\n";
+        assertEquals(expected, console.toString("UTF-8"));
+        assertEquals(console.size(), out.getBytesOut());
+        assertTrue(out.getBytesIn() > 15 * out.getBytesOut());
+    }
+
+    @Test
+    public void shouldWriteTestOutputAsItIs() throws Exception {
+        byte[] output = IOUtils.toByteArray(getClass().getResourceAsStream("/XCTest_output_failing_1.txt"));
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        CompactConsoleOutputStream out = new CompactConsoleOutputStream(console);
+        // one byte at a time, and the rest at once
+        for (int i = 0; i < 100; i++) {
+            out.write(output[i]);
+        }
+        out.write(output, 100, output.length - 100);
+        out.finish();
+        assertEquals(new String(output, StandardCharsets.UTF_8), console.toString("UTF-8"));
+    }
+
+    @Test
+    public void shouldWriteTheLastLineWithoutALineBreak() throws Exception {
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        CompactConsoleOutputStream out = new CompactConsoleOutputStream(console);
+        out.write("CompileC /build/Hand.o /src/Hand.m\n    cd /src\nCompileC /build/Card.o /src/Card.m\n    cd /src\n** BUILD FAILED **".getBytes(StandardCharsets.UTF_8));
+        out.finish();
+        assertEquals("CompileC /build/Hand.o /src/Hand.m\n    ... and 1 more CompileC steps\n** BUILD FAILED **", console.toString("UTF-8"));
+    }
+}
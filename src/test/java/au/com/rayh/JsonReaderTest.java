@@ -0,0 +1,57 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class JsonReaderTest {
+    @Test
+    public void shouldReadValuesOneAtATime() throws Exception {
+        JsonReader in = new JsonReader(new StringReader(
+                "{\"name\": \"caf\\u00e9 \\\"quoted\\\"\", \"skipped\": {\"a\": [1, {\"b\": null}], \"c\": true}, \"count\": -12.5e3, \"list\": [\"x\", \"y\"]}"));
+        in.beginObject();
+        assertEquals("name", in.nextName());
+        assertEquals("café \"quoted\"", in.nextString());
+        assertEquals("skipped", in.nextName());
+        in.skipValue();
+        assertEquals("count", in.nextName());
+        assertEquals(JsonReader.Token.NUMBER, in.peek());
+        assertEquals("-12.5e3", in.nextString());
+        assertEquals("list", in.nextName());
+        in.beginArray();
+        assertEquals("x", in.nextString());
+        assertEquals("y", in.nextString());
+        assertFalse(in.hasNext());
+        in.endArray();
+        assertFalse(in.hasNext());
+        in.endObject();
+        assertEquals(JsonReader.Token.END_DOCUMENT, in.peek());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+public class LineDecoderTest {
+    List<String> lines;
+    LineDecoder decoder;
+
+    @Before
+    public void setUp() {
+        lines = new ArrayList<>();
+        decoder = new LineDecoder(new LineDecoder.LineHandler() {
+            public void lineEnded(CharSequence line) throws IOException {
+                lines.add(line.toString());
+            }
+        });
+    }
+
+    @Test
+    public void shouldSplitLinesAcrossWrites() throws Exception {
+        byte[] bytes = "first\nsec".getBytes(StandardCharsets.UTF_8);
+        decoder.write(bytes, 0, bytes.length);
+        bytes = "ond\n\nlast without newline".getBytes(StandardCharsets.UTF_8);
+        decoder.write(bytes, 0, bytes.length);
+        assertEquals(asList("first", "second", ""), lines);
+    }
+
+    @Test
+    public void shouldCarryMultiByteSequencesOverToTheNextWrite() throws Exception {
+        String text = "Test Case '-[AppTests test_日本語_🚀]' started.\n";
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            decoder.write(new byte[] { b }, 0, 1);
+        }
+        assertEquals(asList(text.substring(0, text.length() - 1)), lines);
+    }
+
+    @Test
+    public void shouldDecodeLinesLongerThanTheBuffer() throws Exception {
+        StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            longLine.append("é");
+        }
+        byte[] bytes = (longLine + "\nnext\n").getBytes(StandardCharsets.UTF_8);
+        decoder.write(bytes, 0, bytes.length);
+        assertEquals(asList(longLine.toString(), "next"), lines);
+    }
+
+    @Test
+    public void shouldReplaceMalformedInput() throws Exception {
+        decoder.write(new byte[] { 'a', (byte)0xff, 'b', '\n' }, 0, 4);
+        assertEquals(asList("a\uFFFDb"), lines);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes a project.pbxproj of any size, laid out like Xcode writes them, for benchmarks and tests
+ * of {@link PbxprojParser}: a project of modules, each a framework target with its tests, many
+ * source files and the build settings of its configurations.
+ *
+ * Usage: PbxprojGenerator &lt;file&gt; &lt;megabytes&gt;
+ */
+public class PbxprojGenerator {
+    static final List<String> CONFIGURATIONS = Arrays.asList("Debug", "Release", "App Store");
+    private static final int FILES_PER_TARGET = 120;
+
+    private final List<String> targets = new ArrayList<>();
+    private final StringBuilder buildFiles = new StringBuilder();
+    private final StringBuilder fileReferences = new StringBuilder();
+    private final StringBuilder nativeTargets = new StringBuilder();
+    private final StringBuilder buildConfigurations = new StringBuilder();
+    private final StringBuilder configurationLists = new StringBuilder();
+    private int ids;
+
+    public static void main(String[] args) throws IOException {
+        try (OutputStream out = new FileOutputStream(args[0])) {
+            out.write(new PbxprojGenerator().generate(Long.parseLong(args[1]) * 1024 * 1024));
+        }
+    }
+
+    /**
+     * The names of the targets of the project, in the order of the project.
+     */
+    public List<String> getTargets() {
+        return targets;
+    }
+
+    /**
+     * Generates a project of at least the given size.
+     */
+    public byte[] generate(long bytes) {
+        int module = 0;
+        while (size() < bytes) {
+            addModule("GeneratedModule" + module++);
+        }
+        StringBuilder out = new StringBuilder((int) size() + 4096);
+        String project = nextId();
+        String projectConfigurations = addConfigurationList("PBXProject \"Generated\"");
+        out.append("// !$*UTF8*$!\n{\n\tarchiveVersion = 1;\n\tclasses = {\n\t};\n\tobjectVersion = 50;\n\tobjects = {\n\n");
+        section(out, "PBXBuildFile", buildFiles);
+        section(out, "PBXFileReference", fileReferences);
+        section(out, "PBXNativeTarget", nativeTargets);
+        out.append("/* Begin PBXProject section */\n");
+        out.append("\t\t").append(project).append(" /* Project object */ = {\n");
+        out.append("\t\t\tisa = PBXProject;\n");
+        out.append("\t\t\tbuildConfigurationList = ").append(projectConfigurations).append(" /* Build configuration list for PBXProject \"Generated\" */;\n");
+        out.append("\t\t\tcompatibilityVersion = \"Xcode 9.3\";\n\t\t\tknownRegions = (\n\t\t\t\ten,\n\t\t\t\tBase,\n\t\t\t);\n");
+        out.append("\t\t\ttargets = (\n");
+        for (int i = 0; i < targets.size(); i++) {
+            out.append("\t\t\t\t").append(id(i)).append(" /* ").append(targets.get(i)).append(" */,\n");
+        }
+        out.append("\t\t\t);\n\t\t};\n/* End PBXProject section */\n\n");
+        section(out, "XCBuildConfiguration", buildConfigurations);
+        section(out, "XCConfigurationList", configurationLists);
+        out.append("\t};\n\trootObject = ").append(project).append(" /* Project object */;\n}\n");
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private long size() {
+        return buildFiles.length() + fileReferences.length() + nativeTargets.length() + buildConfigurations.length() + configurationLists.length();
+    }
+
+    private void addModule(String name) {
+        addTarget(name, "com.apple.product-type.framework");
+        addTarget(name + "Tests", "com.apple.product-type.bundle.unit-test");
+    }
+
+    private void addTarget(String name, String productType) {
+        // the ids of targets come first, so the project can refer to them by their index
+        String target = id(targets.size());
+        targets.add(name);
+        String sources = nextId();
+        for (int i = 0; i < FILES_PER_TARGET; i++) {
+            String file = name + "File" + i + ".swift";
+            String reference = nextId();
+            buildFiles.append("\t\t").append(nextId()).append(" /* ").append(file).append(" in Sources */ = {isa = PBXBuildFile; fileRef = ")
+                    .append(reference).append(" /* ").append(file).append(" */; };\n");
+            fileReferences.append("\t\t").append(reference).append(" /* ").append(file).append(" */ = {isa = PBXFileReference; lastKnownFileType = sourcecode.swift; path = ")
+                    .append(file).append("; sourceTree = \"<group>\"; };\n");
+        }
+        String configurationList = addConfigurationList("PBXNativeTarget \"" + name + "\"");
+        nativeTargets.append("\t\t").append(target).append(" /* ").append(name).append(" */ = {\n")
+                .append("\t\t\tisa = PBXNativeTarget;\n")
+                .append("\t\t\tbuildConfigurationList = ").append(configurationList).append(" /* Build configuration list for PBXNativeTarget \"").append(name).append("\" */;\n")
+                .append("\t\t\tbuildPhases = (\n\t\t\t\t").append(sources).append(" /* Sources */,\n\t\t\t);\n")
+                .append("\t\t\tbuildRules = (\n\t\t\t);\n\t\t\tdependencies = (\n\t\t\t);\n")
+                .append("\t\t\tname = ").append(name).append(";\n")
+                .append("\t\t\tproductName = ").append(name).append(";\n")
+                .append("\t\t\tproductType = \"").append(productType).append("\";\n\t\t};\n");
+    }
+
+    private String addConfigurationList(String owner) {
+        String list = nextId();
+        configurationLists.append("\t\t").append(list).append(" /* Build configuration list for ").append(owner).append(" */ = {\n")
+                .append("\t\t\tisa = XCConfigurationList;\n\t\t\tbuildConfigurations = (\n");
+        for (String name : CONFIGURATIONS) {
+            String configuration = nextId();
+            configurationLists.append("\t\t\t\t").append(configuration).append(" /* ").append(name).append(" */,\n");
+            buildConfigurations.append("\t\t").append(configuration).append(" /* ").append(name).append(" */ = {\n")
+                    .append("\t\t\tisa = XCBuildConfiguration;\n\t\t\tbuildSettings = {\n")
+                    .append("\t\t\t\tCLANG_ENABLE_MODULES = YES;\n")
+                    .append("\t\t\t\tCODE_SIGN_STYLE = Automatic;\n")
+                    .append("\t\t\t\tGCC_PREPROCESSOR_DEFINITIONS = (\n\t\t\t\t\t\"CONFIGURATION=").append(name.replace(" ", "")).append("\",\n\t\t\t\t\t\"$(inherited)\",\n\t\t\t\t);\n")
+                    .append("\t\t\t\tINFOPLIST_FILE = \"").append(owner.replace("\"", "")).append("/Info.plist\";\n")
+                    .append("\t\t\t\tIPHONEOS_DEPLOYMENT_TARGET = 11.0;\n")
+                    .append("\t\t\t\tLD_RUNPATH_SEARCH_PATHS = \"$(inherited) @executable_path/Frameworks @loader_path/Frameworks\";\n")
+                    .append("\t\t\t\tPRODUCT_BUNDLE_IDENTIFIER = \"org.jenkins-ci.generated\";\n")
+                    .append("\t\t\t\tPRODUCT_NAME = \"$(TARGET_NAME:c99extidentifier)\";\n")
+                    .append("\t\t\t\tSWIFT_VERSION = 4.0;\n")
+                    .append("\t\t\t};\n\t\t\tname = \"").append(name).append("\";\n\t\t};\n");
+        }
+        configurationLists.append("\t\t\t);\n\t\t\tdefaultConfigurationIsVisible = 0;\n\t\t\tdefaultConfigurationName = Release;\n\t\t};\n");
+        return list;
+    }
+
+    private static void section(StringBuilder out, String isa, CharSequence objects) {
+        out.append("/* Begin ").append(isa).append(" section */\n").append(objects).append("/* End ").append(isa).append(" section */\n\n");
+    }
+
+    private String nextId() {
+        return String.format("B%023X", ++ids);
+    }
+
+    private static String id(int target) {
+        return String.format("A%023X", target);
+    }
+}
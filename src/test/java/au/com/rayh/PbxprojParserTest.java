@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import hudson.util.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class PbxprojParserTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static PbxprojParser parse(String resource) throws IOException {
+        try (Reader in = new InputStreamReader(PbxprojParserTest.class.getResourceAsStream(resource), StandardCharsets.UTF_8)) {
+            return new PbxprojParser(in);
+        }
+    }
+
+    private File project(String name) throws IOException {
+        File project = folder.newFolder(name);
+        try (InputStream in = getClass().getResourceAsStream("/project-1.pbxproj")) {
+            Files.write(new File(project, "project.pbxproj").toPath(), IOUtils.toByteArray(in));
+        }
+        return project;
+    }
+
+    private static void touch(File file) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), new byte[0]);
+    }
+
+    @Test
+    public void shouldFindTheTargetsAndConfigurationsOfTheProject() throws Exception {
+        PbxprojParser parser = parse("/project-1.pbxproj");
+
+        assertEquals(Arrays.asList("CardExample", "Card \"Example\" Tests", "Lint"), parser.getTargets());
+        // the configurations of the CardExample target are not those of the project
+        assertEquals(Arrays.asList("Debug", "Release", "App Store"), parser.getConfigurations());
+    }
+
+    @Test
+    public void shouldListTheProjectLikeXcodebuild() throws Exception {
+        File project = project("CardExample.xcodeproj");
+
+        XcodeBuildListParser listing = new XcodeBuildListParser(PbxprojParser.list(project));
+        assertEquals(Arrays.asList("CardExample", "Card \"Example\" Tests", "Lint"), listing.getTargets());
+        assertEquals(Arrays.asList("Debug", "Release", "App Store"), listing.getConfigurations());
+        // Xcode makes a scheme of each target of a project without any
+        assertEquals(listing.getTargets(), listing.getSchemes());
+
+        touch(new File(project, "xcshareddata/xcschemes/CardExample.xcscheme"));
+        touch(new File(project, "xcuserdata/jenkins.xcuserdatad/xcschemes/CardExample.xcscheme"));
+        touch(new File(project, "xcuserdata/jenkins.xcuserdatad/xcschemes/Benchmarks.xcscheme"));
+        listing = new XcodeBuildListParser(PbxprojParser.list(project));
+        assertEquals(Arrays.asList("Benchmarks", "CardExample"), listing.getSchemes());
+    }
+
+    @Test
+    public void shouldListTheOnlyProjectOfTheDirectory() throws Exception {
+        File project = project("CardExample.xcodeproj");
+
+        String listing = new PbxprojParser.ListCallable(null).invoke(project.getParentFile(), null);
+        assertEquals(PbxprojParser.list(project), listing);
+        assertEquals(listing, new PbxprojParser.ListCallable("CardExample").invoke(project.getParentFile(), null));
+        // xcodebuild will tell what is wrong with the others
+        assertNull(new PbxprojParser.ListCallable("Missing.xcodeproj").invoke(project.getParentFile(), null));
+    }
+
+    @Test
+    public void shouldReadAGeneratedProject() throws Exception {
+        PbxprojGenerator generator = new PbxprojGenerator();
+        byte[] pbxproj = generator.generate(20 * 1024 * 1024);
+
+        PbxprojParser parser = new PbxprojParser(new InputStreamReader(new ByteArrayInputStream(pbxproj), StandardCharsets.UTF_8));
+
+        assertEquals(generator.getTargets(), parser.getTargets());
+        assertEquals(PbxprojGenerator.CONFIGURATIONS, parser.getConfigurations());
+    }
+
+    @Test
+    public void shouldRejectABrokenProject() throws Exception {
+        String pbxproj = new String(IOUtils.toByteArray(getClass().getResourceAsStream("/project-1.pbxproj")), StandardCharsets.UTF_8);
+        for (String broken : Arrays.asList(pbxproj.substring(0, pbxproj.length() / 2), pbxproj.replace("rootObject", "otherObject"), "{ objects = { /* }; }")) {
+            try {
+                new PbxprojParser(new StringReader(broken));
+                fail("Read a broken project");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+}
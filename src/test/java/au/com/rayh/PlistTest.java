@@ -0,0 +1,227 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import hudson.util.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PlistTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] resource(String name) throws IOException {
+        try (InputStream in = PlistTest.class.getResourceAsStream(name)) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    private File copy(String name) throws IOException {
+        File file = new File(folder.getRoot(), "Info.plist");
+        Files.write(file.toPath(), resource(name));
+        return file;
+    }
+
+    private static void assertArchive(Object root) {
+        assertEquals("42", Plist.get(root, ":ApplicationProperties:CFBundleVersion"));
+        assertEquals("1.2.3", Plist.get(root, ":ApplicationProperties:CFBundleShortVersionString"));
+        assertEquals("Ünïcode App ✓", Plist.get(root, ":Name"));
+        assertEquals(2L, Plist.get(root, ":ArchiveVersion"));
+        assertEquals(5000000000L, Plist.get(root, ":Big"));
+        assertEquals(-7L, Plist.get(root, ":Negative"));
+        assertEquals(2.5, Plist.get(root, ":Scale"));
+        assertEquals(Boolean.FALSE, Plist.get(root, ":Debug"));
+        assertEquals(Boolean.TRUE, Plist.get(root, ":Signed"));
+        // 2016-03-01T12:30:15Z
+        assertEquals(new Date(1456835415000L), Plist.get(root, ":CreationDate"));
+        assertArrayEquals(new byte[] { 0, 1, 'b', 'i', 'n', 'a', 'r', 'y', (byte) 0xff }, (byte[]) Plist.get(root, ":Token"));
+        assertEquals("armv7", Plist.get(root, ":Architectures:1"));
+        assertEquals(3, ((List<?>) Plist.get(root, ":Architectures")).size());
+        assertNull(Plist.get(root, ":ApplicationProperties:CFBundleDisplayName"));
+        assertNull(Plist.get(root, ":Architectures:3"));
+    }
+
+    @Test
+    public void shouldReadXmlPlists() throws Exception {
+        byte[] bytes = resource("/archive-Info-xml.plist");
+
+        assertEquals(Plist.Format.XML, Plist.formatOf(bytes));
+        assertArchive(Plist.read(bytes));
+    }
+
+    @Test
+    public void shouldReadBinaryPlists() throws Exception {
+        byte[] bytes = resource("/archive-Info-binary.plist");
+
+        assertEquals(Plist.Format.BINARY, Plist.formatOf(bytes));
+        assertArchive(Plist.read(bytes));
+    }
+
+    @Test
+    public void shouldFailOnTruncatedBinaryPlists() throws Exception {
+        // the identifier runs past the end of the file
+        byte[] bytes = resource("/Info-truncated-binary.plist");
+
+        try {
+            Plist.read(bytes);
+            fail();
+        } catch (IOException e) {
+            assertEquals("Truncated binary property list", e.getMessage());
+        }
+        try {
+            new Plist.SetCallable(":CFBundleIdentifier", "com.example.Other").invoke(copy("/Info-truncated-binary.plist"), null);
+            fail();
+        } catch (IOException e) {
+            assertArrayEquals(bytes, Files.readAllBytes(new File(folder.getRoot(), "Info.plist").toPath()));
+        }
+    }
+
+    @Test
+    public void shouldOnlyFailWithIOExceptionsOnCorruptBinaryPlists() throws Exception {
+        byte[] bytes = resource("/archive-Info-binary.plist");
+
+        for (int i = 8; i < bytes.length; i++) {
+            for (int value : new int[] { 0x00, 0x0f, 0x5f, 0x7f, 0xdf, 0xff }) {
+                byte[] corrupt = bytes.clone();
+                corrupt[i] = (byte) value;
+                try {
+                    Plist.read(corrupt);
+                } catch (IOException e) {
+                    // expected of most of them
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldReadBackWhatItWrites() throws Exception {
+        Object root = Plist.read(resource("/archive-Info-binary.plist"));
+
+        for (Plist.Format format : Plist.Format.values()) {
+            byte[] bytes = Plist.write(root, format);
+            assertEquals(format, Plist.formatOf(bytes));
+            assertArchive(Plist.read(bytes));
+        }
+    }
+
+    @Test
+    public void shouldWriteLongStringsAndManyObjectsInBinary() throws Exception {
+        Map<String, Object> root = new LinkedHashMap<>();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            root.put("Key" + i, (long) i * i);
+            text.append('x');
+        }
+        root.put("Text", text.toString());
+        root.put("Same", text.toString());
+
+        Object read = Plist.read(Plist.write(root, Plist.Format.BINARY));
+
+        assertEquals(root, read);
+    }
+
+    @Test
+    public void shouldReadEntriesInOnePass() throws Exception {
+        File file = copy("/archive-Info-binary.plist");
+
+        Map<String, String> values = new Plist.ReadCallable(":ApplicationProperties:CFBundleVersion",
+                ":ApplicationProperties:CFBundleShortVersionString", ":Signed", ":ApplicationProperties", ":Missing")
+                .invoke(file, null);
+
+        assertEquals("42", values.get(":ApplicationProperties:CFBundleVersion"));
+        assertEquals("1.2.3", values.get(":ApplicationProperties:CFBundleShortVersionString"));
+        assertEquals("true", values.get(":Signed"));
+        // dictionaries and missing entries have no value
+        assertEquals(3, values.size());
+    }
+
+    @Test
+    public void shouldReadNothingFromAMissingFile() throws Exception {
+        Map<String, String> values = new Plist.ReadCallable(":CFBundleIdentifier").invoke(new File(folder.getRoot(), "Info.plist"), null);
+
+        assertTrue(values.isEmpty());
+    }
+
+    @Test
+    public void shouldSetEntriesKeepingTheFormat() throws Exception {
+        for (String name : Arrays.asList("/archive-Info-xml.plist", "/archive-Info-binary.plist")) {
+            File file = copy(name);
+            Plist.Format format = Plist.formatOf(resource(name));
+
+            assertTrue(new Plist.SetCallable(":ApplicationProperties:CFBundleIdentifier", "com.example.Other").invoke(file, null));
+            assertTrue(new Plist.SetCallable(":SchemeName", "Other").invoke(file, null));
+
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            assertEquals(format, Plist.formatOf(bytes));
+            Object root = Plist.read(bytes);
+            assertEquals("com.example.Other", Plist.get(root, ":ApplicationProperties:CFBundleIdentifier"));
+            assertEquals("Other", Plist.get(root, ":SchemeName"));
+            assertArchive(root);
+            assertEquals(1, folder.getRoot().list().length);
+        }
+    }
+
+    @Test
+    public void shouldSetEntriesThroughSymbolicLinks() throws Exception {
+        File file = copy("/archive-Info-xml.plist");
+        File link = new File(folder.getRoot(), "Link.plist");
+        Files.createSymbolicLink(link.toPath(), file.toPath());
+
+        assertTrue(new Plist.SetCallable(":SchemeName", "Other").invoke(link, null));
+
+        assertTrue(Files.isSymbolicLink(link.toPath()));
+        assertEquals("Other", Plist.get(Plist.read(Files.readAllBytes(file.toPath())), ":SchemeName"));
+    }
+
+    @Test
+    public void shouldNotSetEntriesThatDoNotExist() throws Exception {
+        File file = copy("/archive-Info-xml.plist");
+        byte[] before = Files.readAllBytes(file.toPath());
+
+        assertFalse(new Plist.SetCallable(":CFBundleDisplayName", "Other").invoke(file, null));
+        assertFalse(new Plist.SetCallable(":Missing:CFBundleIdentifier", "com.example.Other").invoke(file, null));
+        assertFalse(new Plist.SetCallable(":CFBundleIdentifier", "com.example.Other").invoke(new File(folder.getRoot(), "Other.plist"), null));
+        assertArrayEquals(before, Files.readAllBytes(file.toPath()));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.util.concurrent.TimeUnit;
+
+import hudson.Launcher;
+import hudson.model.TaskListener;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PreflightTest {
+
+    private final Launcher launcher = new Launcher.LocalLauncher(TaskListener.NULL);
+
+    private Launcher.ProcStarter sh(String script) {
+        return launcher.launch().cmds("sh", "-c", script);
+    }
+
+    @Test
+    public void shouldRunTheProbesSideBySide() throws Exception {
+        Preflight preflight = new Preflight(30, TimeUnit.SECONDS);
+        long started = System.nanoTime();
+        Preflight.Probe first = preflight.start("first", sh("sleep 1; echo first"));
+        Preflight.Probe second = preflight.start("second", sh("sleep 1; echo second"));
+        Preflight.Probe third = preflight.start("third", sh("sleep 1; echo third >&2"));
+        preflight.awaitAll();
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 2500);
+        assertEquals("first\n", first.getOutput());
+        assertEquals("second\n", second.getOutput());
+        assertEquals("third\n", third.getOutput());
+        assertTrue(first.isSuccess());
+        assertTrue(second.getMillis() >= 1000);
+    }
+
+    @Test
+    public void shouldKeepTheExitCode() throws Exception {
+        Preflight preflight = new Preflight(30, TimeUnit.SECONDS);
+        Preflight.Probe probe = preflight.start("failing", sh("echo nope; exit 3"));
+        preflight.awaitAll();
+
+        assertEquals(3, probe.getReturnCode());
+        assertFalse(probe.isSuccess());
+        assertFalse(probe.isTimedOut());
+        assertEquals("nope\n", probe.getOutput());
+    }
+
+    @Test
+    public void shouldKillTheProbesStillRunningAtTheDeadline() throws Exception {
+        Preflight preflight = new Preflight(1, TimeUnit.SECONDS);
+        long started = System.nanoTime();
+        Preflight.Probe fast = preflight.start("fast", sh("echo fast"));
+        Preflight.Probe slow = preflight.start("slow", sh("exec sleep 30"));
+        preflight.awaitAll();
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 10000);
+        assertTrue(fast.isSuccess());
+        assertEquals("fast\n", fast.getOutput());
+        assertTrue(slow.isTimedOut());
+        assertEquals(-1, slow.getReturnCode());
+        assertFalse(slow.isSuccess());
+    }
+
+    @Test
+    public void shouldKillAProbeAtItsOwnDeadline() throws Exception {
+        Preflight preflight = new Preflight(30, TimeUnit.SECONDS);
+        long started = System.nanoTime();
+        Preflight.Probe slow = preflight.start("slow", 1, TimeUnit.SECONDS, sh("exec sleep 30"));
+        Preflight.Probe other = preflight.start("other", sh("sleep 2; echo other"));
+        preflight.awaitAll();
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 10000);
+        assertTrue(slow.isTimedOut());
+        assertTrue(other.isSuccess());
+        assertEquals("other\n", other.getOutput());
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ToolchainCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void clear() {
+        ToolchainCache.clear();
+    }
+
+    private static ToolchainCache.Stamp stamp(String developerDir, long xcodebuildModified) {
+        return new ToolchainCache.Stamp("/usr/bin/xcodebuild", "/usr/bin/agvtool", "/usr/bin/xcrun", developerDir, xcodebuildModified, true, true);
+    }
+
+    @Test
+    public void shouldKeepTheToolchainWhileTheStampIsTheSame() {
+        ToolchainCache.Stamp stamp = stamp("/Applications/Xcode.app/Contents/Developer", 1000);
+        assertNull(ToolchainCache.get("mac-mini", stamp));
+        ToolchainCache.Toolchain toolchain = ToolchainCache.put("mac-mini", stamp, "Xcode 9.0\n", "iOS 11.0 -sdk iphoneos11.0\n");
+
+        assertSame(toolchain, ToolchainCache.get("mac-mini", stamp("/Applications/Xcode.app/Contents/Developer", 1000)));
+        assertEquals("Xcode 9.0\n", toolchain.getVersion());
+        assertNull(ToolchainCache.get("another-mac", stamp));
+    }
+
+    @Test
+    public void shouldForgetTheToolchainWhenXcodeChanges() {
+        ToolchainCache.put("mac-mini", stamp("/Applications/Xcode.app/Contents/Developer", 1000), "Xcode 9.0\n", "");
+
+        assertNull(ToolchainCache.get("mac-mini", stamp("/Applications/Xcode.app/Contents/Developer", 2000)));
+        // the stamp taken is kept, but not what the earlier Xcode said of itself
+        assertNull(ToolchainCache.get("mac-mini", stamp("/Applications/Xcode.app/Contents/Developer", 2000)));
+        assertFalse(ToolchainCache.getToolchains().get(0).isProbed());
+    }
+
+    @Test
+    public void shouldForgetTheToolchainWhenAnotherXcodeIsSelected() {
+        ToolchainCache.put("mac-mini", stamp("/Applications/Xcode.app/Contents/Developer", 1000), "Xcode 9.0\n", "");
+
+        assertNull(ToolchainCache.get("mac-mini", stamp("/Applications/Xcode-beta.app/Contents/Developer", 1000)));
+    }
+
+    @Test
+    public void shouldForgetTheToolchainWhenItExpires() {
+        ToolchainCache.Stamp stamp = stamp(null, 1000);
+        ToolchainCache.Toolchain toolchain = ToolchainCache.put("mac-mini", stamp, "Xcode 9.0\n", "");
+
+        assertSame(toolchain, ToolchainCache.get("mac-mini", stamp, toolchain.getRecorded() + ToolchainCache.TTL - 1));
+        assertNull(ToolchainCache.get("mac-mini", stamp, toolchain.getRecorded() + ToolchainCache.TTL));
+    }
+
+    @Test
+    public void shouldStampTheToolsWithoutRunningThem() throws Exception {
+        File developerDir = folder.newFolder("Developer");
+        File xcodebuild = folder.newFile("xcodebuild");
+        File agvtool = folder.newFile("agvtool");
+        assertTrue(new File(developerDir, "usr/bin").mkdirs());
+        File selected = new File(developerDir, "usr/bin/xcodebuild");
+        assertTrue(selected.createNewFile());
+        assertTrue(xcodebuild.setLastModified(1000000));
+        assertTrue(selected.setLastModified(2000000));
+
+        ToolchainCache.Stamp stamp = new ToolchainCache.StampCallable(xcodebuild.getPath(), agvtool.getPath(),
+                new File(folder.getRoot(), "xcrun").getPath(), developerDir.getPath()).call();
+
+        assertTrue(stamp.isXcodebuildFound());
+        assertTrue(stamp.isAgvtoolFound());
+        assertFalse(stamp.isXcrunFound());
+        assertEquals(Boolean.FALSE, stamp.isFound(new File(folder.getRoot(), "xcrun").getPath()));
+        assertNull(stamp.isFound("/usr/bin/true"));
+        assertEquals(developerDir.getPath(), stamp.getDeveloperDir());
+
+        // an update of the selected Xcode shows in the stamp
+        assertTrue(selected.setLastModified(3000000));
+        assertFalse(stamp.equals(new ToolchainCache.StampCallable(xcodebuild.getPath(), agvtool.getPath(),
+                new File(folder.getRoot(), "xcrun").getPath(), developerDir.getPath()).call()));
+    }
+}
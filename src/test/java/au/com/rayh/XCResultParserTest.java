@@ -0,0 +1,83 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import au.com.rayh.report.TestCase;
+import au.com.rayh.report.TestFailure;
+import au.com.rayh.report.TestSuite;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class XCResultParserTest {
+    @Test
+    public void shouldBuildASuitePerTestClass() throws Exception {
+        XCResultParser parser = new XCResultParser("agent");
+        parser.readInvocationRecord(resource("/xcresult_record_1.json"));
+        assertEquals("0~qHhJpjmXn7b6VUE3LqQz", parser.getTestsRef());
+
+        List<TestSuite> suites = parser.readTests(resource("/xcresult_tests_1.json"));
+        assertEquals(2, suites.size());
+
+        TestSuite cards = suites.get(0);
+        assertEquals("CardTestCase", cards.getName());
+        assertEquals(2, cards.getTests());
+        assertEquals(0, cards.getFailures());
+        assertEquals(1551694502114L, cards.getStartTime().getTime());
+        assertEquals("testDoesNotMatchDifferentCard", cards.getTestCases().get(0).getName());
+        assertEquals(0.0012f, cards.getTestCases().get(0).getTime(), 0.00001f);
+
+        TestSuite decks = suites.get(1);
+        assertEquals("DeckTestCase", decks.getName());
+        assertEquals(2, decks.getTests());
+        assertEquals(1, decks.getFailures());
+        TestCase failed = decks.getTestCases().get(0);
+        assertEquals("testDrawCardFromEmptyDeckAnswersNoCard", failed.getName());
+        TestFailure failure = failed.getFailures().get(0);
+        assertEquals("XCTAssertNil failed: \"Card\" – drawn from an empty deck", failure.getMessage());
+        assertEquals("/Users/jenkins/workspace/CardExample/CardExampleTests/DeckTestCase.swift:31", failure.getLocation());
+        assertTrue(decks.getTestCases().get(1).getFailures().isEmpty());
+    }
+
+    @Test
+    public void shouldReportFailuresWithoutARecord() throws Exception {
+        XCResultParser parser = new XCResultParser("agent");
+        assertNull(parser.getTestsRef());
+        List<TestSuite> suites = parser.readTests(resource("/xcresult_tests_1.json"));
+        assertEquals("Test failed", suites.get(1).getTestCases().get(0).getFailures().get(0).getMessage());
+    }
+
+    private Reader resource(String name) throws IOException {
+        return new InputStreamReader(getClass().getResourceAsStream(name), StandardCharsets.UTF_8);
+    }
+}
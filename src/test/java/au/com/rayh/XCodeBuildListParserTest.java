@@ -53,6 +53,19 @@ public class XCodeBuildListParserTest {
 
     }
 
+    @Test
+    public void testFormatParsesBack() throws Throwable {
+        String xcodeBuildOutput = FileUtils.readFileToString(FileUtils.toFile(ClassLoader.getSystemResource("xcodebuildlist-valid.txt")));
+
+        XcodeBuildListParser parser = new XcodeBuildListParser(xcodeBuildOutput);
+        XcodeBuildListParser formatted = new XcodeBuildListParser(parser.format());
+
+        Assert.assertEquals(parser.getTargets(), formatted.getTargets());
+        Assert.assertEquals(parser.getConfigurations(), formatted.getConfigurations());
+        Assert.assertEquals(parser.getSchemes(), formatted.getSchemes());
+        Assert.assertEquals("", new XcodeBuildListParser("").format());
+    }
+
     @Test
     public void testInvalidOutputExtraLine() throws Throwable {
         String xcodeBuildOutput = FileUtils.readFileToString(FileUtils.toFile(ClassLoader.getSystemResource("xcodebuildlist-invalid1.txt")));
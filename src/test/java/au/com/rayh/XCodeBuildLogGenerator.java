@@ -0,0 +1,286 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+
+/**
+ * Writes realistic xcodebuild output of any size, the same for the same seed, for benchmarks and
+ * soak tests: compiler and linker invocations between runs of test bundles, whose test classes
+ * have passing and failing test cases, assertion failures, UI test assertion failures and now and
+ * then a crash.
+ * Build steps are made up front and copied, test output is written into a buffer a line at a time,
+ * and it keeps count of what a parser should find.
+ *
+ * Usage: XCodeBuildLogGenerator &lt;file&gt; &lt;megabytes&gt; [seed]
+ */
+public class XCodeBuildLogGenerator {
+    private static final String WORKSPACE = "/Users/jenkins/workspace/GeneratedApp";
+    private static final String DEVELOPER = "/Applications/Xcode.app/Contents/Developer";
+    private static final String[] WORDS = {
+        "Card", "Deck", "Player", "Score", "Table", "Hand", "Dealer", "Game", "Round", "Chip", "Bet", "Rule"
+    };
+
+    private final Random random;
+    private final byte[] buffer = new byte[64 * 1024];
+    private int count;
+    private OutputStream out;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+    private long time = 1488363000000L;
+
+    private long bytes;
+    private long lines;
+    private int tests;
+    private int failures;
+    private int errors;
+    private int bundle;
+    private final byte[][] buildSteps = new byte[64][];
+    private final int[] buildStepLines = new int[buildSteps.length];
+
+    public XCodeBuildLogGenerator(long seed) {
+        this.random = new Random(seed);
+        ByteArrayOutputStream step = new ByteArrayOutputStream();
+        out = step;
+        try {
+            for (int i = 0; i < buildSteps.length; i++) {
+                step.reset();
+                long before = lines;
+                buildStep();
+                flush();
+                buildSteps[i] = step.toByteArray();
+                buildStepLines[i] = (int) (lines - before);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        bytes = 0;
+        lines = 0;
+    }
+
+    /**
+     * Writes at least the given number of bytes, ending with a whole test bundle or build step.
+     */
+    public void generate(OutputStream out, long size) throws IOException {
+        this.out = out;
+        while (bytes < size) {
+            if (random.nextInt(10) < 7) {
+                compile();
+            } else {
+                testBundle();
+            }
+        }
+        flush();
+        out.flush();
+    }
+
+    /**
+     * Build steps make up most of a log, so a set of them is written up front and then copied.
+     */
+    private void compile() throws IOException {
+        int index = random.nextInt(buildSteps.length);
+        byte[] step = buildSteps[index];
+        for (int off = 0; off < step.length; ) {
+            if (count == buffer.length) {
+                flush();
+            }
+            int length = Math.min(step.length - off, buffer.length - count);
+            System.arraycopy(step, off, buffer, count, length);
+            count += length;
+            off += length;
+        }
+        bytes += step.length;
+        lines += buildStepLines[index];
+    }
+
+    private void buildStep() throws IOException {
+        String file = word() + word() + (random.nextBoolean() ? "View" : "Controller");
+        if (random.nextInt(4) == 0) {
+            line("Ld " + WORKSPACE + "/build/Debug-iphonesimulator/GeneratedApp.app/GeneratedApp normal x86_64");
+            line("    cd " + WORKSPACE);
+            line("    export PATH=\"" + DEVELOPER + "/usr/bin:/usr/bin:/bin:/usr/sbin:/sbin\"");
+            line("    " + DEVELOPER + "/Toolchains/XcodeDefault.xctoolchain/usr/bin/clang -arch x86_64 -isysroot "
+                    + DEVELOPER + "/Platforms/iPhoneSimulator.platform/Developer/SDKs/iPhoneSimulator.sdk -L" + WORKSPACE
+                    + "/build/Debug-iphonesimulator -filelist " + WORKSPACE + "/build/Objects-normal/x86_64/GeneratedApp.LinkFileList"
+                    + " -Xlinker -rpath -Xlinker @executable_path/Frameworks -dead_strip -fobjc-arc -fobjc-link-runtime -o "
+                    + WORKSPACE + "/build/Debug-iphonesimulator/GeneratedApp.app/GeneratedApp");
+        } else {
+            line("CompileSwift normal x86_64 " + WORKSPACE + "/GeneratedApp/" + file + ".swift");
+            line("    cd " + WORKSPACE);
+            line("    " + DEVELOPER + "/Toolchains/XcodeDefault.xctoolchain/usr/bin/swift -frontend -c -primary-file "
+                    + WORKSPACE + "/GeneratedApp/" + file + ".swift -target x86_64-apple-ios10.3 -enable-objc-interop -sdk "
+                    + DEVELOPER + "/Platforms/iPhoneSimulator.platform/Developer/SDKs/iPhoneSimulator.sdk -I " + WORKSPACE
+                    + "/build/Debug-iphonesimulator -enable-testing -g -swift-version 3 -Onone -D DEBUG -module-name GeneratedApp -o "
+                    + WORKSPACE + "/build/Objects-normal/x86_64/" + file + ".o");
+            if (random.nextInt(20) == 0) {
+                line(WORKSPACE + "/GeneratedApp/" + file + ".swift:" + (1 + random.nextInt(400)) + ":" + (1 + random.nextInt(60))
+                        + ": warning: variable 'index' was never mutated; consider changing to 'let' constant");
+            }
+        }
+        line("");
+    }
+
+    private void testBundle() throws IOException {
+        String bundleName = "GeneratedTests" + (bundle++ % 4) + ".xctest";
+        suiteStarted("All tests");
+        suiteStarted(bundleName);
+        int classes = 1 + random.nextInt(8);
+        for (int c = 0; c < classes; c++) {
+            String className = word() + word() + "Tests" + random.nextInt(1000);
+            boolean ui = random.nextInt(5) == 0;
+            suiteStarted(className);
+            int testCases = 1 + random.nextInt(20);
+            int classFailures = 0;
+            for (int t = 0; t < testCases; t++) {
+                String testName = "test" + word() + word() + t;
+                line("Test Case '-[" + className + " " + testName + "]' started.");
+                tests++;
+                int outcome = random.nextInt(1000);
+                if (outcome == 0) {
+                    line("2017-03-01 10:10:00.000 GeneratedApp[4711:1234567] *** Terminating app due to uncaught exception 'NSInvalidArgumentException', reason: '-[__NSCFNumber length]: unrecognized selector sent to instance 0xb000000000000003'");
+                    line("libc++abi.dylib: terminating with uncaught exception of type NSException");
+                    errors++;
+                    line("Test Suite '" + bundleName + "' failed at " + date() + ".");
+                    line("Test Suite 'All tests' failed at " + date() + ".");
+                    line("** TEST FAILED **");
+                    line("");
+                    return;
+                } else if (outcome < 60) {
+                    if (ui) {
+                        uiSteps();
+                        line("    t =     " + seconds() + "s         Assertion Failure: " + className + ".swift:" + (10 + random.nextInt(200))
+                                + ": XCTAssertTrue failed - " + word() + " was not found");
+                    } else {
+                        line(WORKSPACE + "/GeneratedTests/" + className + ".m:" + (10 + random.nextInt(200)) + ": error: -["
+                                + className + " " + testName + "] : XCTAssertEqual failed: (\"" + random.nextInt(100) + "\") is not equal to (\"" + random.nextInt(100) + "\")");
+                    }
+                    line("Test Case '-[" + className + " " + testName + "]' failed (" + seconds() + " seconds).");
+                    failures++;
+                    classFailures++;
+                } else {
+                    if (ui) {
+                        uiSteps();
+                    }
+                    line("Test Case '-[" + className + " " + testName + "]' passed (" + seconds() + " seconds).");
+                }
+            }
+            line("Test Suite '" + className + "' " + (classFailures > 0 ? "failed" : "passed") + " at " + date() + ".");
+            line("\t Executed " + testCases + " tests, with " + classFailures + " failures (0 unexpected) in 0.042 (0.044) seconds");
+        }
+        line("Test Suite '" + bundleName + "' passed at " + date() + ".");
+        line("Test Suite 'All tests' passed at " + date() + ".");
+        line("");
+    }
+
+    private void uiSteps() throws IOException {
+        int steps = 2 + random.nextInt(6);
+        for (int s = 0; s < steps; s++) {
+            line("    t =     " + seconds() + "s     Tap \"" + word() + "\" Button");
+            line("    t =     " + seconds() + "s         Wait for app to idle");
+        }
+    }
+
+    private void suiteStarted(String name) throws IOException {
+        line("Test Suite '" + name + "' started at " + date());
+    }
+
+    private String date() {
+        time += random.nextInt(2000);
+        return dateFormat.format(new Date(time));
+    }
+
+    private String seconds() {
+        int millis = random.nextInt(5000);
+        return millis / 1000 + "." + (millis % 1000 < 100 ? "0" : "") + (millis % 1000 < 10 ? "0" : "") + millis % 1000;
+    }
+
+    private String word() {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    /**
+     * All the text is ASCII, so it is copied into the buffer a char at a time rather than encoded.
+     */
+    private void line(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            if (count == buffer.length) {
+                flush();
+            }
+            buffer[count++] = (byte) text.charAt(i);
+        }
+        if (count == buffer.length) {
+            flush();
+        }
+        buffer[count++] = '\n';
+        bytes += text.length() + 1;
+        lines++;
+    }
+
+    private void flush() throws IOException {
+        out.write(buffer, 0, count);
+        count = 0;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    /**
+     * The number of test cases started, including those that crashed.
+     */
+    public int getTests() {
+        return tests;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+
+    public int getErrors() {
+        return errors;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: XCodeBuildLogGenerator <file> <megabytes> [seed]");
+            System.exit(2);
+        }
+        XCodeBuildLogGenerator generator = new XCodeBuildLogGenerator(args.length > 2 ? Long.parseLong(args[2]) : 0);
+        try (OutputStream out = new FileOutputStream(args[0])) {
+            generator.generate(out, Long.parseLong(args[1]) * 1024 * 1024);
+        }
+        System.out.println(generator.getLines() + " lines, " + generator.getTests() + " tests, "
+                + generator.getFailures() + " failures, " + generator.getErrors() + " errors");
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import hudson.util.IOUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class XCodeBuildLogReplayTest {
+    File reportsDir;
+
+    @Before
+    public void setUp() throws IOException {
+        reportsDir = File.createTempFile("test-reports", "");
+        if (!reportsDir.delete() || !reportsDir.mkdir()) {
+            throw new IOException("Unable to create " + reportsDir);
+        }
+    }
+
+    @Test
+    public void shouldRegenerateTestReportsFromASavedLog() throws Exception {
+        File log = new File(reportsDir, "xcodebuild.log");
+        FileUtils.copyInputStreamToFile(getClass().getResourceAsStream("/XCTest_output_failing_1.txt"), log);
+
+        XCodeBuildOutputParser parser = new XCodeBuildLogReplay(log).replay(reportsDir);
+        assertEquals(-1, parser.getExitCode());
+        assertEquals(12, parser.getTestCount());
+        assertEquals(1, parser.getFailureCount());
+        assertTrue(new File(reportsDir, "TEST-CardTestCase.xml").isFile());
+        assertTrue(new File(reportsDir, "TEST-PlayingCardTestCase.xml").isFile());
+    }
+
+    @Test
+    public void shouldParseTheLastLineOfALogWithoutALineBreak() throws Exception {
+        File log = new File(reportsDir, "xcodebuild.log");
+        String output = IOUtils.toString(getClass().getResourceAsStream("/XCTest_output_passing_1.txt"), "UTF-8");
+        FileUtils.writeStringToFile(log, output.trim() + "\nfailed with exit code 65", StandardCharsets.UTF_8);
+
+        XCodeBuildOutputParser parser = new XCodeBuildLogReplay(log).replay(reportsDir);
+        assertEquals(65, parser.getExitCode());
+    }
+
+    @Test
+    public void shouldReplayACompressedLog() throws Exception {
+        File log = new File(reportsDir, "xcodebuild-1.log.gz");
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(log))) {
+            IOUtils.copy(getClass().getResourceAsStream("/XCTest_output_failing_1.txt"), out);
+        }
+
+        XCodeBuildOutputParser parser = new XCodeBuildLogReplay(log).replay(reportsDir);
+        assertEquals(12, parser.getTestCount());
+        assertEquals(1, parser.getFailureCount());
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Streams a generated log through the parser and checks it finds every test, failure and crash.
+ * The log is 2 MB by default so the unit tests stay fast; set {@code xcode.soak.megabytes} to soak
+ * the parser for longer, and {@code xcode.soak.seed} to try other logs.
+ */
+public class XCodeBuildOutputParserSoakTest {
+    private File reportsDir;
+
+    @Before
+    public void setUp() throws IOException {
+        reportsDir = File.createTempFile("test-reports", "");
+        if (!reportsDir.delete() || !reportsDir.mkdir()) {
+            throw new IOException("Unable to create " + reportsDir);
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(reportsDir);
+    }
+
+    @Test
+    public void shouldFindEveryTestInAGeneratedLog() throws Exception {
+        soak(false);
+    }
+
+    @Test
+    public void shouldFindEveryTestInAGeneratedLogWithStreamingReports() throws Exception {
+        soak(true);
+    }
+
+    private void soak(boolean streamingTestReports) throws Exception {
+        long megabytes = Long.getLong("xcode.soak.megabytes", 2);
+        XCodeBuildLogGenerator generator = new XCodeBuildLogGenerator(Long.getLong("xcode.soak.seed", 1));
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(reportsDir, NullOutputStream.NULL_OUTPUT_STREAM);
+        parser.setStreamingTestReports(streamingTestReports);
+
+        generator.generate(parser.getOutputStream(), megabytes * 1024 * 1024);
+        parser.awaitTestReports();
+
+        assertTrue(generator.getTests() > 0);
+        assertEquals(generator.getTests(), parser.getTestCount());
+        assertEquals(generator.getFailures(), parser.getFailureCount());
+        assertEquals(generator.getErrors(), parser.getErrorCount());
+    }
+}
@@ -31,15 +31,35 @@ package au.com.rayh;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.net.UnknownHostException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import javax.xml.bind.Unmarshaller;
+
+import au.com.rayh.report.TestCase;
+import au.com.rayh.report.TestFailure;
+import au.com.rayh.report.TestSuite;
 
 import hudson.util.IOUtils;
+import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  *
@@ -133,6 +153,387 @@ public class XCodeBuildOutputParserTest {
         assertEquals(-1, parser.getExitCode());
     }
 
+    @Test
+    public void shouldParseOutputWrittenInChunksSpanningLines() throws IOException {
+        byte[] log = IOUtils.toByteArray(getClass().getResourceAsStream("/XCTest_output_failing_1.txt"));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(new File("."), output);
+        for (int off = 0; off < log.length; off += 7) {
+            parser.getOutputStream().write(log, off, Math.min(7, log.length - off));
+        }
+        assertEquals(-1, parser.getExitCode());
+        assertArrayEquals(log, output.toByteArray());
+    }
+
+    @Test
+    public void shouldWriteTestReportsInTheBackground() throws Exception {
+        File reportsDir = createTempDir();
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(reportsDir, new ByteArrayOutputStream());
+        IOUtils.copy(getClass().getResourceAsStream("/XCTest_output_failing_1.txt"), parser.getOutputStream());
+        parser.awaitTestReports();
+        assertTrue(new File(reportsDir, "TEST-CardTestCase.xml").isFile());
+        assertTrue(new File(reportsDir, "TEST-PlayingCardTestCase.xml").isFile());
+    }
+
+    @Test
+    public void shouldStreamTheSameTestReports() throws Exception {
+        File reportsDir = createTempDir();
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(reportsDir, new ByteArrayOutputStream());
+        IOUtils.copy(getClass().getResourceAsStream("/XCTest_output_failing_1.txt"), parser.getOutputStream());
+        parser.awaitTestReports();
+
+        File streamedReportsDir = createTempDir();
+        XCodeBuildOutputParser streamingParser = new XCodeBuildOutputParser(streamedReportsDir, new ByteArrayOutputStream());
+        streamingParser.setStreamingTestReports(true);
+        IOUtils.copy(getClass().getResourceAsStream("/XCTest_output_failing_1.txt"), streamingParser.getOutputStream());
+        streamingParser.awaitTestReports();
+
+        Unmarshaller unmarshaller = XCodeBuildOutputParser.getJAXBContext().createUnmarshaller();
+        for (String name : new String[] { "TEST-CardTestCase.xml", "TEST-PlayingCardTestCase.xml" }) {
+            TestSuite expected = (TestSuite) unmarshaller.unmarshal(new File(reportsDir, name));
+            TestSuite streamed = (TestSuite) unmarshaller.unmarshal(new File(streamedReportsDir, name));
+            assertEquals(expected.getName(), streamed.getName());
+            assertEquals(expected.getTests(), streamed.getTests());
+            assertEquals(expected.getFailures(), streamed.getFailures());
+            assertEquals(expected.getErrors(), streamed.getErrors());
+            assertEquals(expected.getTestCases().size(), streamed.getTestCases().size());
+            for (int i = 0; i < expected.getTestCases().size(); i++) {
+                TestCase expectedCase = expected.getTestCases().get(i);
+                TestCase streamedCase = streamed.getTestCases().get(i);
+                assertEquals(expectedCase.getName(), streamedCase.getName());
+                assertEquals(expectedCase.getTime(), streamedCase.getTime(), 0f);
+                assertEquals(expectedCase.getFailures().size(), streamedCase.getFailures().size());
+                for (int j = 0; j < expectedCase.getFailures().size(); j++) {
+                    assertEquals(expectedCase.getFailures().get(j).getMessage(), streamedCase.getFailures().get(j).getMessage());
+                    assertEquals(expectedCase.getFailures().get(j).getLocation(), streamedCase.getFailures().get(j).getLocation());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldDeleteStreamedTestCasesWhenTheReportCannotBeWritten() throws Exception {
+        File tmpDir = new File(System.getProperty("java.io.tmpdir"));
+        FilenameFilter parts = new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.startsWith("TEST-") && name.endsWith(".xml.part");
+            }
+        };
+        int before = tmpDir.list(parts).length;
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(createTempDir(), new ByteArrayOutputStream()) {
+            @Override
+            protected OutputStream outputForSuite(TestSuite suite) throws IOException {
+                throw new IOException("No space left on device");
+            }
+        };
+        parser.setStreamingTestReports(true);
+        IOUtils.copy(getClass().getResourceAsStream("/XCTest_output_failing_1.txt"), parser.getOutputStream());
+        try {
+            parser.awaitTestReports();
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("No space left on device"));
+        }
+        assertEquals(before, tmpDir.list(parts).length);
+    }
+
+    @Test
+    public void shouldFallBackWhenTheHostnameCannotBeLookedUp() throws Exception {
+        File reportsDir = createTempDir();
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(reportsDir, new ByteArrayOutputStream());
+        FutureTask<String> lookup = new FutureTask<>(new Callable<String>() {
+            public String call() throws UnknownHostException {
+                throw new UnknownHostException("agent");
+            }
+        });
+        lookup.run();
+        parser.hostnameLookup = lookup;
+        IOUtils.copy(getClass().getResourceAsStream("/XCTest_output_failing_1.txt"), parser.getOutputStream());
+        parser.awaitTestReports();
+        String report = FileUtils.readFileToString(new File(reportsDir, "TEST-CardTestCase.xml"), "UTF-8");
+        assertTrue(report.contains("hostname=\"localhost\""));
+    }
+
+    @Test
+    public void shouldParseInterleavedParallelTestingOutput() throws Exception {
+        File reportsDir = createTempDir();
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(reportsDir, new ByteArrayOutputStream());
+        parser.setParallelTesting(true);
+        IOUtils.copy(getClass().getResourceAsStream("/XCTest_output_parallel_1.txt"), parser.getOutputStream());
+        parser.awaitTestReports();
+        assertEquals(-1, parser.getExitCode());
+
+        Unmarshaller unmarshaller = XCodeBuildOutputParser.getJAXBContext().createUnmarshaller();
+        TestSuite cards = (TestSuite) unmarshaller.unmarshal(new File(reportsDir, "TEST-CardTestCase.xml"));
+        assertEquals(2, cards.getTests());
+        assertEquals(0, cards.getFailures());
+        assertEquals("testDoesNotMatchDifferentCard", cards.getTestCases().get(0).getName());
+        assertEquals("testMatchesForAtLeastOneCard", cards.getTestCases().get(1).getName());
+
+        TestSuite decks = (TestSuite) unmarshaller.unmarshal(new File(reportsDir, "TEST-DeckTestCase.xml"));
+        assertEquals(2, decks.getTests());
+        assertEquals(1, decks.getFailures());
+        TestCase failed = decks.getTestCases().get(0);
+        assertEquals("testDrawCardFromEmptyDeckAnswersNoCard", failed.getName());
+        assertEquals("XCTAssertNil failed: \"Card\"", failed.getFailures().get(0).getMessage());
+
+        assertEquals(2, reportsDir.list().length);
+    }
+
+    @Test
+    public void shouldCountTheTestsOfReportedSuites() throws Exception {
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(createTempDir(), new ByteArrayOutputStream());
+        IOUtils.copy(getClass().getResourceAsStream("/XCTest_output_failing_1.txt"), parser.getOutputStream());
+        parser.awaitTestReports();
+        assertEquals(12, parser.getTestCount());
+        assertEquals(1, parser.getFailureCount());
+        assertEquals(0, parser.getErrorCount());
+    }
+
+    @Test
+    public void shouldReportUITestAssertionFailures() throws Exception {
+        File reportsDir = createTempDir();
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(reportsDir, new ByteArrayOutputStream());
+        IOUtils.copy(getClass().getResourceAsStream("/XCUITest_output_failing_1.txt"), parser.getOutputStream());
+        parser.awaitTestReports();
+        assertEquals(2, parser.getTestCount());
+        assertEquals(1, parser.getFailureCount());
+
+        TestSuite suite = (TestSuite) XCodeBuildOutputParser.getJAXBContext().createUnmarshaller()
+                .unmarshal(new File(reportsDir, "TEST-CardExampleUITests.xml"));
+        TestFailure failure = suite.getTestCases().get(0).getFailures().get(0);
+        assertEquals("XCTAssertTrue failed - card was not drawn", failure.getMessage());
+        assertEquals("CardExampleUITests.swift:27", failure.getLocation());
+    }
+
+    @Test
+    public void shouldWriteNoTestReportsForABuildWithoutTests() throws Exception {
+        File reportsDir = createTempDir();
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(reportsDir, new ByteArrayOutputStream());
+        IOUtils.copy(getClass().getResourceAsStream("/XCodeBuild_output_build_1.txt"), parser.getOutputStream());
+        parser.awaitTestReports();
+        assertEquals(0, parser.getExitCode());
+        assertEquals(0, reportsDir.list().length);
+    }
+
+    @Test
+    public void shouldTimeBuildStepsByTargetAndPhase() throws Exception {
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(new File("."), new ByteArrayOutputStream()) {
+            private long now;
+
+            @Override
+            protected long nanoTime() {
+                now += 1000000000L;
+                return now;
+            }
+        };
+        IOUtils.copy(getClass().getResourceAsStream("/XCodeBuild_output_build_1.txt"), parser.getOutputStream());
+        String newerOutput = "CompileC /build/Objects-normal/x86_64/Hand.o /src/Hand.m normal x86_64 objective-c com.apple.compilers.llvm.clang.1_0.compiler (in target 'CardKit' from project 'CardExample')\n"
+                + "\n"
+                + "Build Timing Summary\n"
+                + "\n"
+                + "CompileSwiftSources (1 task) | 4.253 seconds\n"
+                + "\n"
+                + "CompileC (12 tasks) | 1.5 seconds\n";
+        parser.getOutputStream().write(newerOutput.getBytes("UTF-8"));
+        parser.awaitTestReports();
+
+        BuildTimings timings = parser.getBuildTimings();
+        List<BuildTimings.Timing> targets = timings.getTargets();
+        assertEquals(2, targets.size());
+        assertEquals("CardExample", targets.get(0).getTarget());
+        assertEquals(11, targets.get(0).getCount());
+        assertEquals("CardKit", targets.get(1).getTarget());
+
+        BuildTimings.Timing compileSwift = timings.getPhases().get(0);
+        assertEquals("CompileSwift", compileSwift.getPhase());
+        assertEquals(8, compileSwift.getCount());
+        assertEquals(8000, compileSwift.getMillis());
+        assertEquals(12000, timings.getTotalMillis());
+
+        List<BuildTimings.Timing> summary = timings.getSummary();
+        assertEquals("CompileSwiftSources", summary.get(0).getPhase());
+        assertEquals(4253, summary.get(0).getMillis());
+        assertEquals(12, summary.get(1).getCount());
+    }
+
+    @Test
+    public void shouldKeepTheSlowestTypeCheckedFunctions() throws Exception {
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(new File("."), new ByteArrayOutputStream());
+        StringBuilder output = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            output.append(i % 100).append(".5ms\t/src/Deck.swift:").append(i).append(":10\tinstance method f").append(i).append("()\n");
+        }
+        output.append("2500.0ms\t/src/Card.swift:12:5\tgetter rank\n");
+        output.append("2500.0ms\t/src/Card.swift:12:5\tgetter rank\n");
+        output.append("1200.25ms\t/src/Card.swift:40:17\n");
+        output.append("/src/Hand.swift:7:9: warning: instance method 'sort()' took 1500ms to type-check (limit: 200ms)\n");
+        parser.getOutputStream().write(output.toString().getBytes("UTF-8"));
+        parser.awaitTestReports();
+
+        List<TypeCheckHotspots.Hotspot> hotspots = parser.getTypeCheckHotspots().getHotspots();
+        assertEquals(TypeCheckHotspots.DEFAULT_SIZE, hotspots.size());
+        assertEquals("getter rank", hotspots.get(0).getDescription());
+        assertEquals(2500.0, hotspots.get(0).getMillis(), 0);
+        assertEquals("instance method 'sort()'", hotspots.get(1).getDescription());
+        assertEquals("/src/Hand.swift", hotspots.get(1).getFile());
+        assertEquals("expression", hotspots.get(2).getDescription());
+        assertEquals(40, hotspots.get(2).getLine());
+        assertEquals(99.5, hotspots.get(3).getMillis(), 0);
+        assertEquals(90.5, hotspots.get(hotspots.size() - 1).getMillis(), 0);
+        assertEquals("/src/Card.swift", parser.getTypeCheckHotspots().getFiles().keySet().iterator().next());
+        assertEquals(1, parser.getDiagnostics().getWarnings());
+    }
+
+    @Test
+    public void shouldIndexWhereSuitesAndTestCasesAreInTheOutput() throws Exception {
+        byte[] output = IOUtils.toByteArray(getClass().getResourceAsStream("/XCTest_output_failing_1.txt"));
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(new File("."), new ByteArrayOutputStream());
+        // in pieces that end in the middle of lines
+        for (int off = 0; off < output.length; off += 100) {
+            parser.getOutputStream().write(output, off, Math.min(100, output.length - off));
+        }
+        parser.awaitTestReports();
+
+        File indexFile = new File(createTempDir(), "index");
+        parser.getConsoleIndex().save(indexFile);
+        ConsoleIndex index = ConsoleIndex.load(indexFile);
+
+        ConsoleIndex.Entry failed = index.getFailedTestCases().get(0);
+        assertEquals("PlayingCardTestCase/testTheValidSuits", failed.getName());
+        String slice = new String(output, (int) failed.getStart(), (int) (failed.getEnd() - failed.getStart()), "UTF-8");
+        assertTrue(slice.startsWith("Test Case '-[PlayingCardTestCase testTheValidSuits]' started.\n"));
+        assertTrue(slice.contains(": error: -[PlayingCardTestCase testTheValidSuits] :"));
+        assertTrue(slice.endsWith("Test Case '-[PlayingCardTestCase testTheValidSuits]' failed (0.001 seconds).\n"));
+
+        ConsoleIndex.Entry suite = index.getSuite("CardTestCase");
+        slice = new String(output, (int) suite.getStart(), (int) (suite.getEnd() - suite.getStart()), "UTF-8");
+        assertTrue(slice.startsWith("Test Suite 'CardTestCase' started at"));
+        assertTrue(slice.endsWith("Test Suite 'CardTestCase' passed at 2014-12-12 05:02:01 +0000.\n"));
+        assertEquals(0, index.getSuite("All tests").getStart());
+        assertEquals(12, index.getTestCases().size());
+    }
+
+    @Test
+    public void shouldCollectTestResultsWithoutWritingReports() throws Exception {
+        File reportsDir = createTempDir();
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(reportsDir, new ByteArrayOutputStream());
+        parser.setWritingTestReports(false);
+        parser.setCollectingTestResults(true);
+        IOUtils.copy(getClass().getResourceAsStream("/XCTest_output_failing_1.txt"), parser.getOutputStream());
+        parser.awaitTestReports();
+        assertEquals(0, reportsDir.list().length);
+
+        XCodeTestResults results = parser.getTestResults();
+        assertEquals(12, results.getTests());
+        assertEquals(1, results.getFailures());
+        assertEquals(4, results.getSuites().size());
+        XCodeTestResults.FailedTestCase failed = results.getFailedTestCases().get(0);
+        assertEquals("PlayingCardTestCase", failed.getSuite());
+        assertEquals("testTheValidSuits", failed.getName());
+        assertTrue(failed.getMessages().get(0).endsWith("PlayingCardTestCase.m:34: ((howMany) equal to (3)) failed: (\"4\") is not equal to (\"3\") - Should be only 4"));
+    }
+
+    @Test
+    public void shouldNotCollectTestResultsUnlessAsked() throws Exception {
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(createTempDir(), new ByteArrayOutputStream());
+        IOUtils.copy(getClass().getResourceAsStream("/XCTest_output_failing_1.txt"), parser.getOutputStream());
+        parser.awaitTestReports();
+
+        assertNull(parser.getTestResults());
+        // the counts are kept all the same
+        assertEquals(12, parser.getTestCount());
+        assertEquals(1, parser.getFailureCount());
+    }
+
+    @Test
+    public void shouldCountEachDiagnosticOnce() throws Exception {
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(new File("."), new ByteArrayOutputStream());
+        IOUtils.copy(getClass().getResourceAsStream("/XCodeBuild_output_build_1.txt"), parser.getOutputStream());
+        String diagnostics = "/src/Deck.h:12:1: warning: 'Card' is deprecated\n"
+                + "/src/Deck.h:12:1: warning: 'Card' is deprecated\n"
+                + "/src/Deck.h:12:1: warning: 'Card' is deprecated\n"
+                + "/src/Deck.h:20: warning: 'Suit' is deprecated\n"
+                + "/src/Hand.m:7:9: error: use of undeclared identifier 'deck'\n";
+        parser.getOutputStream().write(diagnostics.getBytes("UTF-8"));
+        parser.awaitTestReports();
+
+        Diagnostics d = parser.getDiagnostics();
+        assertEquals(3, d.getWarnings());
+        assertEquals(1, d.getErrors());
+        assertEquals(2, d.getDuplicates());
+        assertEquals(2, d.getFile("/src/Deck.h").getWarnings());
+        assertEquals(1, d.getFile("/Users/jenkins/workspace/CardExample/CardExample/Deck.swift").getWarnings());
+        // files with errors come first
+        assertEquals("/src/Hand.m", d.getFiles().get(0).getFile());
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldReportFailuresToWriteTestReports() throws Exception {
+        File reportsDir = new File(createTempDir(), "missing");
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(reportsDir, new ByteArrayOutputStream());
+        IOUtils.copy(getClass().getResourceAsStream("/XCTest_output_passing_1.txt"), parser.getOutputStream());
+        parser.awaitTestReports();
+    }
+
+    @Test
+    public void shouldDecodeNonAsciiTestNamesSplitAcrossWrites() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(new File("."), output);
+        parser.currentTestSuite = new TestSuite("host", "AppTests", new Date());
+        byte[] line = "Test Case '-[AppTests test_日本語_🚀]' started.\n".getBytes("UTF-8");
+        for (int off = 0; off < line.length; off += 3) {
+            parser.getOutputStream().write(line, off, Math.min(3, line.length - off));
+        }
+        assertEquals("test_日本語_🚀", parser.currentTestCase.getName());
+    }
+
+    @Test
+    public void shouldParseSuiteTimesInEitherFormat() throws Exception {
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(new File("."), new ByteArrayOutputStream());
+        parser.handleLine("Test Suite 'AppTests' started at 2014-12-15 17:55:06 +0000");
+        assertEquals(1418666106000L, parser.currentTestSuite.getStartTime().getTime());
+        parser.handleLine("Test Suite 'AppTests' started at 2017-03-01 09:30:00.250");
+        Date expected = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").parse("2017-03-01 09:30:00.250");
+        assertEquals(expected, parser.currentTestSuite.getStartTime());
+        parser.handleLine("Test Suite 'AppTests' started at 2014-12-15 17:55:07 +0000");
+        assertEquals(1418666107000L, parser.currentTestSuite.getStartTime().getTime());
+    }
+
+    @Test(expected = ParseException.class)
+    public void shouldRejectUnknownSuiteTimes() throws Exception {
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(new File("."), new ByteArrayOutputStream());
+        parser.handleLine("Test Suite 'AppTests' started at yesterday");
+    }
+
+    @Test
+    public void shouldClassifyLinesByTheirLiteralAnchors() {
+        assertEquals(XCodeBuildOutputParser.LineKind.TEST_SUITE, XCodeBuildOutputParser.classify("Test Suite 'All tests' started at 2014-12-12 05:12:52 +0000"));
+        assertEquals(XCodeBuildOutputParser.LineKind.TEST_CASE, XCodeBuildOutputParser.classify("Test Case '-[PisClientTestCase testThatPasses]' passed (1.234 seconds)."));
+        assertEquals(XCodeBuildOutputParser.LineKind.TEST_CASE_ERROR, XCodeBuildOutputParser.classify("PisClientTestCase.m:21: error: -[PisClientTestCase testThatFails] : failed"));
+        assertEquals(XCodeBuildOutputParser.LineKind.UI_TEST_ASSERTION_FAILURE, XCodeBuildOutputParser.classify("t =    29.77s             Assertion Failure: AppUITests.m:31: UI Testing Failure"));
+        assertEquals(XCodeBuildOutputParser.LineKind.TERMINATING_EXCEPTION, XCodeBuildOutputParser.classify("2015-01-01 00:00:00.000 App[1:2] *** Terminating app due to uncaught exception 'NSException', reason: 'boom'"));
+        assertEquals(XCodeBuildOutputParser.LineKind.FAILED_WITH_EXIT_CODE, XCodeBuildOutputParser.classify("failed with exit code 65"));
+        assertEquals(XCodeBuildOutputParser.LineKind.FAILED, XCodeBuildOutputParser.classify("** TEST FAILED **"));
+        assertEquals(XCodeBuildOutputParser.LineKind.BUILD_TARGET, XCodeBuildOutputParser.classify("=== BUILD TARGET CardExample OF PROJECT CardExample WITH CONFIGURATION Debug ==="));
+        assertEquals(XCodeBuildOutputParser.LineKind.TIMING_SUMMARY, XCodeBuildOutputParser.classify("CompileSwiftSources (1 task) | 4.253 seconds"));
+        assertEquals(XCodeBuildOutputParser.LineKind.TYPE_CHECK_TIME, XCodeBuildOutputParser.classify("12.3ms\t/src/Deck.swift:42:10\tinstance method shuffle()"));
+        assertEquals(XCodeBuildOutputParser.LineKind.DIAGNOSTIC, XCodeBuildOutputParser.classify("Deck.swift:41:13: warning: variable 'index' was never mutated"));
+        assertEquals(XCodeBuildOutputParser.LineKind.OTHER, XCodeBuildOutputParser.classify("    cd /Users/jenkins/workspace/CardExample"));
+        assertEquals(XCodeBuildOutputParser.LineKind.UI_TEST_ASSERTION_FAILURE, XCodeBuildOutputParser.classify("    t =     4.30s         Assertion Failure: CardExampleUITests.swift:27: XCTAssertTrue failed"));
+        assertEquals(XCodeBuildOutputParser.LineKind.TIMING_SUMMARY, XCodeBuildOutputParser.classify("CompileC (12 tasks) | 3.456 seconds"));
+        assertEquals(XCodeBuildOutputParser.LineKind.OTHER, XCodeBuildOutputParser.classify(""));
+        assertEquals(XCodeBuildOutputParser.LineKind.BUILD_STEP, XCodeBuildOutputParser.classify("CompileC build/Objects-normal/x86_64/Card.o Card.m normal x86_64 objective-c com.apple.compilers.llvm.clang.1_0.compiler"));
+    }
+
+    private static File createTempDir() throws IOException {
+        File dir = File.createTempFile("test-reports", "");
+        if (!dir.delete() || !dir.mkdir()) {
+            throw new IOException("Unable to create " + dir);
+        }
+        return dir;
+    }
+
     private XCodeBuildOutputParser parseTestOutput(String outputFileName) throws IOException {
         ByteArrayOutputStream output = new ByteArrayOutputStream();
         XCodeBuildOutputParser parser = new XCodeBuildOutputParser(new File("."), output);
@@ -24,10 +24,14 @@
 
 package au.com.rayh;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Collections;
 
 import static org.junit.Assert.*;
@@ -71,4 +75,32 @@ public class XCodeBuilderTest {
         assertEquals(asList("A=B", "CODE_SIGN_IDENTITY=iPhone"),
             XCodeBuilder.splitXcodeBuildArguments("A=B CODE_SIGN_IDENTITY='iPhone"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldMatchOnlyTheRawLogsOfOtherBuilds() throws Exception {
+        File dir = Files.createTempDirectory("workspace").toFile();
+        try {
+            for (String name : asList("xcodebuild-7.log.gz", "xcodebuild-7-2.log.gz", "xcodebuild-12.log.gz",
+                    "xcodebuild-12-3.log.gz", "xcodebuild-1.log", "xcodebuild.log.gz", "other-7.log.gz")) {
+                assertTrue(new File(dir, name).createNewFile());
+            }
+            File[] files = dir.listFiles(new XCodeBuilder.RawLogsOfOtherBuilds(12));
+            String[] names = new String[files.length];
+            for (int i = 0; i < files.length; i++) {
+                names[i] = files[i].getName();
+            }
+            Arrays.sort(names);
+            assertArrayEquals(new String[] { "xcodebuild-7-2.log.gz", "xcodebuild-7.log.gz" }, names);
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    @Test
+    public void shouldDetectParallelTesting() throws Exception {
+        assertTrue(XCodeBuilder.isParallelTestingEnabled(asList("xcodebuild", "test", "-parallel-testing-enabled", "YES")));
+        assertFalse(XCodeBuilder.isParallelTestingEnabled(asList("xcodebuild", "test", "-parallel-testing-enabled", "NO")));
+        assertFalse(XCodeBuilder.isParallelTestingEnabled(asList("xcodebuild", "test", "-parallel-testing-enabled")));
+        assertFalse(XCodeBuilder.isParallelTestingEnabled(asList("xcodebuild", "test")));
+    }
+}
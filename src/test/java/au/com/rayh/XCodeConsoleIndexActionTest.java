@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import hudson.util.IOUtils;
+import hudson.util.StreamTaskListener;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class XCodeConsoleIndexActionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Writes what an Xcode build step writes to the build log, xcodebuild's output going through the
+     * parser as it does, and returns where the output of xcodebuild starts.
+     */
+    private static long runStep(File log, XCodeBuildOutputParser[] parser, String output) throws Exception {
+        try (OutputStream console = new FileOutputStream(log, true)) {
+            TaskListener listener = new StreamTaskListener(console);
+            listener.getLogger().println("Going to invoke xcodebuild:, scheme: CardExample, sdk: DEFAULT, workspace: DEFAULT");
+            XCodeBuildCallable xcodebuild = new XCodeBuildCallable(Arrays.asList("/usr/bin/xcodebuild", "-scheme", "CardExample", "test"),
+                    new EnvVars(), new FilePath(new File("/Users/jenkins/workspace/CardExample")), listener);
+            xcodebuild.printCommandLine(listener);
+            listener.getLogger().flush();
+            long consoleStart = log.length();
+
+            parser[0] = new XCodeBuildOutputParser(new File("."), console);
+            IOUtils.copy(XCodeConsoleIndexActionTest.class.getResourceAsStream(output), parser[0].getOutputStream());
+            parser[0].awaitTestReports();
+            return consoleStart;
+        }
+    }
+
+    private static String slice(File log, ConsoleIndex.Entry entry) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XCodeConsoleIndexAction.copy(log, entry.getStart(), entry.getEnd(), out);
+        return out.toString("UTF-8");
+    }
+
+    @Test
+    public void shouldServeTheOutputOfTestsOfEachBuildStep() throws Exception {
+        File log = folder.newFile("log");
+        File indexFile = new File(folder.getRoot(), XCodeConsoleIndexAction.INDEX_FILE);
+        Files.write(log.toPath(), "Started by user admin\nBuilding in workspace /Users/jenkins/workspace/CardExample\n".getBytes("UTF-8"));
+
+        XCodeBuildOutputParser[] parser = new XCodeBuildOutputParser[1];
+        for (String output : new String[] { "/XCTest_output_passing_1.txt", "/XCTest_output_failing_1.txt" }) {
+            long consoleStart = runStep(log, parser, output);
+            assertTrue(XCodeConsoleIndexAction.record(indexFile, log, parser[0].getConsoleIndex(), consoleStart));
+        }
+        ConsoleIndex index = ConsoleIndex.load(indexFile);
+
+        String slice = slice(log, XCodeConsoleIndexAction.find(index, null, "PlayingCardTestCase/testTheValidSuits"));
+        assertTrue(slice.startsWith("Test Case '-[PlayingCardTestCase testTheValidSuits]' started.\n"));
+        assertTrue(slice.contains(": error: -[PlayingCardTestCase testTheValidSuits] :"));
+        assertTrue(slice.endsWith("Test Case '-[PlayingCardTestCase testTheValidSuits]' failed (0.001 seconds).\n"));
+
+        // the suite of the second step, which ran it again
+        slice = slice(log, XCodeConsoleIndexAction.find(index, "CardTestCase", null));
+        assertTrue(slice.startsWith("Test Suite 'CardTestCase' started at"));
+        assertTrue(slice.endsWith("Test Suite 'CardTestCase' passed at 2014-12-12 05:02:01 +0000.\n"));
+    }
+
+    @Test
+    public void shouldNotIndexOutputThatIsNotWhereTheOffsetSays() throws Exception {
+        File log = folder.newFile("log");
+        File indexFile = new File(folder.getRoot(), XCodeConsoleIndexAction.INDEX_FILE);
+        Files.write(log.toPath(), "Started by user admin\n".getBytes("UTF-8"));
+
+        XCodeBuildOutputParser[] parser = new XCodeBuildOutputParser[1];
+        long consoleStart = runStep(log, parser, "/XCTest_output_failing_1.txt");
+        ConsoleIndex stepIndex = parser[0].getConsoleIndex();
+
+        // as if the offset had been taken before the command line was printed
+        assertFalse(XCodeConsoleIndexAction.record(indexFile, log, stepIndex, consoleStart - 10));
+        assertFalse(indexFile.exists());
+        assertTrue(XCodeConsoleIndexAction.linesUp(log, stepIndex, consoleStart));
+    }
+}
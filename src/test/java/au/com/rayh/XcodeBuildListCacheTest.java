@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class XcodeBuildListCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void write(File file, String content) throws IOException {
+        assertTrue(file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private File workspace() throws IOException {
+        File root = folder.getRoot();
+        write(new File(root, "App.xcworkspace/contents.xcworkspacedata"), "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<Workspace version = \"1.0\">\n"
+                + "   <FileRef location = \"group:App.xcodeproj\"></FileRef>\n"
+                + "   <Group location = \"container:Modules\" name = \"Modules\">\n"
+                + "      <FileRef location = \"group:Kit/Kit.xcodeproj\"></FileRef>\n"
+                + "      <FileRef location = \"group:README.md\"></FileRef>\n"
+                + "   </Group>\n"
+                + "</Workspace>\n");
+        write(new File(root, "App.xcodeproj/project.pbxproj"), "// !$*UTF8*$!\n{ objectVersion = 48; }\n");
+        write(new File(root, "Modules/Kit/Kit.xcodeproj/project.pbxproj"), "// !$*UTF8*$!\n{ objectVersion = 46; }\n");
+        return root;
+    }
+
+    @Test
+    public void shouldFindTheProjectsOfAWorkspace() throws Exception {
+        File root = workspace();
+
+        List<File> projects = XcodeBuildListCache.projectsOf(new File(root, "App.xcworkspace"));
+
+        assertEquals(Arrays.asList(new File(root, "App.xcodeproj"), new File(root, "Modules/Kit/Kit.xcodeproj")), projects);
+    }
+
+    @Test
+    public void shouldChangeTheKeyWithTheProjectFiles() throws Exception {
+        File root = workspace();
+        String key = XcodeBuildListCache.key(root, "App", null);
+        assertNotNull(key);
+        assertEquals(key, XcodeBuildListCache.key(root, "App", null));
+
+        // a referenced project changes
+        write(new File(root, "Modules/Kit/Kit.xcodeproj/project.pbxproj"), "// !$*UTF8*$!\n{ objectVersion = 48; }\n");
+        String changed = XcodeBuildListCache.key(root, "App", null);
+        assertFalse(key.equals(changed));
+
+        // a scheme is shared
+        write(new File(root, "App.xcodeproj/xcshareddata/xcschemes/App.xcscheme"), "<Scheme/>");
+        String shared = XcodeBuildListCache.key(root, "App", null);
+        assertFalse(changed.equals(shared));
+
+        // what a scheme does is not part of the listing
+        write(new File(root, "App.xcodeproj/xcshareddata/xcschemes/App.xcscheme"), "<Scheme version = \"1.3\"/>");
+        assertEquals(shared, XcodeBuildListCache.key(root, "App", null));
+    }
+
+    @Test
+    public void shouldKeyAProjectWithoutAWorkspace() throws Exception {
+        File root = workspace();
+
+        String key = XcodeBuildListCache.key(root, null, "App.xcodeproj");
+        assertNotNull(key);
+        assertEquals(key, XcodeBuildListCache.key(root, null, "App"));
+        // the only project of the directory
+        assertEquals(key, XcodeBuildListCache.key(root, null, null));
+        assertNull(XcodeBuildListCache.key(root, "Missing", null));
+    }
+
+    @Test
+    public void shouldFindTheListingStored() throws Exception {
+        File root = workspace();
+        File cache = new File(root, "cache");
+
+        XcodeBuildListCache.Lookup lookup = new XcodeBuildListCache.LookupCallable(cache.getPath(), "App", null).invoke(root, null);
+        assertNotNull(lookup.getKey());
+        assertNull(lookup.getListing());
+
+        String listing = "    Schemes:\n        App\n\n";
+        new XcodeBuildListCache.StoreCallable(lookup.getKey(), listing).invoke(cache, null);
+
+        lookup = new XcodeBuildListCache.LookupCallable(cache.getPath(), "App", null).invoke(root, null);
+        assertEquals(listing, lookup.getListing());
+    }
+
+    @Test
+    public void shouldDropTheOldestListings() throws Exception {
+        File cache = folder.newFolder("cache");
+        for (int i = 0; i < XcodeBuildListCache.MAX_ENTRIES; i++) {
+            new XcodeBuildListCache.StoreCallable("key" + i, "").invoke(cache, null);
+            assertTrue(new File(cache, "key" + i).setLastModified(1000000L * (i + 1)));
+        }
+        new XcodeBuildListCache.StoreCallable("latest", "").invoke(cache, null);
+
+        assertEquals(XcodeBuildListCache.MAX_ENTRIES, cache.list().length);
+        assertFalse(new File(cache, "key0").exists());
+        assertTrue(new File(cache, "key1").exists());
+        assertTrue(new File(cache, "latest").exists());
+    }
+}